@@ -0,0 +1,53 @@
+package com.sb.spring_boot_pit_testing_demo.benchmark;
+
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.impl.LongObjectHashMap;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Compares HashMap<Long, ProductDTO> with LongObjectHashMap: bytes allocated per entry while filling a map
+ * sized for the row count, and mean lookup time. The DTOs are created up front so only the map is counted.
+ */
+public class LongObjectHashMapBenchmark {
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        ProductDTO[] products = new ProductDTO[entries];
+        for (int i = 0; i < entries; i++) {
+            products[i] = new ProductDTO((long) i + 1, "Product " + i, 100L, 0L);
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            String suffix = pass == 0 ? " (warm-up)" : "";
+            // ids above 127 so that Long.valueOf cannot hand out cached instances
+            HashMap<Long, ProductDTO> hashMap = new HashMap<>((int) (entries / 0.75f) + 1);
+            measure("HashMap" + suffix, products, id -> hashMap.put(id + 1000, products[(int) id - 1]),
+                    id -> hashMap.get(id + 1000));
+            LongObjectHashMap<ProductDTO> longMap = new LongObjectHashMap<>(entries);
+            measure("LongObjectHashMap" + suffix, products,
+                    id -> longMap.merge(id + 1000, products[(int) id - 1], (existing, value) -> value),
+                    id -> longMap.get(id + 1000));
+        }
+    }
+
+    private static void measure(String label, ProductDTO[] products, LongConsumer put, LongConsumer get) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (ProductDTO product : products) {
+            put.accept(product.getId());
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        long start = System.nanoTime();
+        for (int round = 0; round < 5; round++) {
+            for (ProductDTO product : products) {
+                get.accept(product.getId());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-28s %6.1f bytes/entry  %6.1f ns/get%n",
+                label, (double) allocated / products.length, (double) elapsed / (5L * products.length));
+    }
+}
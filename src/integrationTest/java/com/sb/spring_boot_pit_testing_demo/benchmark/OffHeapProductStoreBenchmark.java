@@ -0,0 +1,60 @@
+package com.sb.spring_boot_pit_testing_demo.benchmark;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.impl.LongObjectHashMap;
+import com.sb.spring_boot_pit_testing_demo.service.impl.OffHeapProductStore;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.function.Consumer;
+
+/**
+ * Heap retained and GC time spent while holding a catalog of N products, once as ProductDTOs in a
+ * LongObjectHashMap and once in OffHeapProductStore. Run each case in its own JVM with a fixed -Xmx, e.g.
+ * {@code java -Xmx4g ... OffHeapProductStoreBenchmark heap 10000000} and the same with {@code off-heap}.
+ */
+public class OffHeapProductStoreBenchmark {
+
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "off-heap";
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        Object retained;
+        long start = System.nanoTime();
+        long gcBefore = gcMillis();
+        if(mode.equals("heap")){
+            LongObjectHashMap<ProductDTO> map = new LongObjectHashMap<>(entries);
+            fill(entries, product -> map.merge(product.getId(), product, (existing, value) -> value));
+            retained = map;
+        } else {
+            ProductProperties productProperties = new ProductProperties();
+            productProperties.getOffHeap().setEnabled(true);
+            OffHeapProductStore store = new OffHeapProductStore(null, null, productProperties);
+            fill(entries, store::onProductSaved);
+            System.out.printf("off-heap bytes: %d MB%n", store.offHeapBytes() >> 20);
+            retained = store;
+        }
+        long fillMillis = (System.nanoTime() - start) / 1_000_000;
+        long gcMillis = gcMillis() - gcBefore;
+        System.gc();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.printf("%s, %d products: heap after gc %d MB, filled in %d ms, %d ms in gc%n",
+                mode, entries, heapUsed >> 20, fillMillis, gcMillis);
+        Reference.reachabilityFence(retained);
+    }
+
+    private static void fill(int entries, Consumer<ProductDTO> sink) {
+        for (int i = 1; i <= entries; i++) {
+            sink.accept(new ProductDTO((long) i, "Product name " + i, 1000L + i, 0L));
+        }
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+}
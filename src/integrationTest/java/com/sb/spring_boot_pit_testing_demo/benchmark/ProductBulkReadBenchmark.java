@@ -0,0 +1,90 @@
+package com.sb.spring_boot_pit_testing_demo.benchmark;
+
+import com.sb.spring_boot_pit_testing_demo.SpringBootPitTestingDemoApplication;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Full-catalog scan throughput of ProductBulkReader against a plain JDBC loop on embedded H2.
+ * Prints rows per second and the heap still in use after a GC at the end of each scan.
+ */
+public class ProductBulkReadBenchmark {
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootPitTestingDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("products.snapshot.enabled=false", "products.id-filter.enabled=false",
+                        "products.suggest.enabled=false", "products.search.enabled=false", "products.stats.enabled=false")
+                .run(args)) {
+            ProductRepository productRepository = context.getBean(ProductRepository.class);
+            ProductBulkReader productBulkReader = context.getBean(ProductBulkReader.class);
+            DataSource dataSource = context.getBean(DataSource.class);
+            List<Product> chunk = new ArrayList<>(1000);
+            for (long id = 1; id <= rows; id++) {
+                chunk.add(new Product(id, "Product " + id, 1000L + id, null));
+                if(chunk.size() == 1000){
+                    productRepository.upsertAll(chunk);
+                    chunk.clear();
+                }
+            }
+            if(!chunk.isEmpty()){
+                productRepository.upsertAll(chunk);
+            }
+
+            LongSupplier jdbc = () -> scanJdbc(dataSource);
+            LongSupplier bulkReader = () -> {
+                try (Stream<ProductDTO> products = productBulkReader.streamAll()) {
+                    return products.mapToLong(ProductDTO::getPrice).sum();
+                }
+            };
+
+            run("warm-up", rows, jdbc);
+            run("warm-up", rows, bulkReader);
+            run("raw JDBC", rows, jdbc);
+            run("ProductBulkReader", rows, bulkReader);
+        }
+    }
+
+    private static long scanJdbc(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT id, name, price, version FROM products ORDER BY id")) {
+            statement.setFetchSize(1000);
+            long sum = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ProductDTO product = new ProductDTO(resultSet.getLong(1), resultSet.getString(2), resultSet.getLong(3),
+                            resultSet.getLong(4));
+                    sum += product.getPrice();
+                }
+            }
+            return sum;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void run(String label, int rows, LongSupplier scan) {
+        long start = System.nanoTime();
+        long checksum = scan.getAsLong();
+        long elapsed = System.nanoTime() - start;
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%-18s %10.0f rows/s  %6d MB heap in use  checksum %d%n",
+                label, rows / (elapsed / 1e9), (runtime.totalMemory() - runtime.freeMemory()) >> 20, checksum);
+    }
+}
@@ -0,0 +1,46 @@
+package com.sb.spring_boot_pit_testing_demo.benchmark;
+
+import com.sb.spring_boot_pit_testing_demo.service.impl.ProductNameValidator;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Compares the previous regex name check with ProductNameValidator: mean time and bytes allocated per call,
+ * measured on the calling thread after a warm-up pass.
+ */
+public class ProductNameValidatorBenchmark {
+    private static final Pattern PRODUCT_NAME = Pattern.compile("^([0-9A-Za-z ]+)$");
+    private static final String[] NAMES = {"Test Product", "Widget 3000", "Super Long Product Name With Many Words 42", "bad-name"};
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Predicate<String> regex = name -> hasText(name) && PRODUCT_NAME.matcher(name).matches();
+        Predicate<String> table = ProductNameValidator::isValid;
+
+        run("regex (warm-up)", iterations, regex);
+        run("table (warm-up)", iterations, table);
+        run("regex", iterations, regex);
+        run("table", iterations, table);
+    }
+
+    private static void run(String label, int iterations, Predicate<String> check) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int accepted = 0;
+        for (int i = 0; i < iterations; i++) {
+            if(check.test(NAMES[i & 3])){
+                accepted++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("%-16s %8.1f ns/op  %8.1f bytes/op  (%d accepted)%n",
+                label, (double) elapsed / iterations, (double) allocated / iterations, accepted);
+    }
+}
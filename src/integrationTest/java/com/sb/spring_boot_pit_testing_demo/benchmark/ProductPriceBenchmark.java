@@ -0,0 +1,50 @@
+package com.sb.spring_boot_pit_testing_demo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Compares the previous BigDecimal price shape with the long minor-unit ProductDTO: bytes allocated per
+ * product held in memory, and time to serialize the whole list with Jackson.
+ */
+public class ProductPriceBenchmark {
+
+    // the DTO as it was before prices moved to minor units
+    public record DecimalPriceProduct(Long id, String name, BigDecimal price, Long version) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        ObjectMapper objectMapper = new ObjectMapper();
+        LongFunction<Object> decimal = id -> new DecimalPriceProduct(id, "Product", BigDecimal.valueOf(id % 100_000 + 1, 2), 0L);
+        LongFunction<Object> minorUnits = id -> new ProductDTO(id, "Product", id % 100_000 + 1, 0L);
+
+        for (int round = 0; round < 2; round++) {
+            run(round == 0 ? "BigDecimal (warm-up)" : "BigDecimal", products, decimal, objectMapper);
+            run(round == 0 ? "long (warm-up)" : "long", products, minorUnits, objectMapper);
+        }
+    }
+
+    private static void run(String label, int products, LongFunction<Object> factory, ObjectMapper objectMapper) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        List<Object> catalog = new ArrayList<>(products);
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (long id = 1; id <= products; id++) {
+            catalog.add(factory.apply(id));
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        long start = System.nanoTime();
+        byte[] json = objectMapper.writeValueAsBytes(catalog);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-22s %6.1f bytes/product  %8.1f ms to serialize %d bytes%n",
+                label, (double) allocated / products, elapsed / 1_000_000.0, json.length);
+    }
+}
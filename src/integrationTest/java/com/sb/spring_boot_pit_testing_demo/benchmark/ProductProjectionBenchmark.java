@@ -0,0 +1,63 @@
+package com.sb.spring_boot_pit_testing_demo.benchmark;
+
+import com.sb.spring_boot_pit_testing_demo.SpringBootPitTestingDemoApplication;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Compares entity reads copied into ProductDTO with the DTO constructor projections on embedded H2.
+ * Prints bytes allocated by the calling thread and mean latency per request, for single-id lookups
+ * and for full catalog reads.
+ */
+public class ProductProjectionBenchmark {
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootPitTestingDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args)) {
+            ProductRepository productRepository = context.getBean(ProductRepository.class);
+            for (long id = 1; id <= rows; id++) {
+                productRepository.upsert(id, "Product " + id, 1000L + id);
+            }
+
+            LongFunction<Object> entity = id -> new ProductDTO(productRepository.findById(id).orElseThrow());
+            LongFunction<Object> projection = id -> productRepository.findDtoById(id).orElseThrow();
+            LongFunction<Object> allEntities = id -> productRepository.findAll().stream().map(ProductDTO::new).toList();
+            LongFunction<Object> allProjections = id -> productRepository.findAllDtos();
+
+            run("warm-up", rows, requests, entity);
+            run("warm-up", rows, requests, projection);
+
+            run("findById + copy", rows, requests, entity);
+            run("findDtoById", rows, requests, projection);
+            run("findAll + copy", rows, 50, allEntities);
+            run("findAllDtos", rows, 50, allProjections);
+        }
+    }
+
+    private static void run(String label, int rows, int requests, LongFunction<Object> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        Object sink = null;
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            sink = read.apply(1 + (i * 7919L) % rows);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("%-16s %8d requests  %12.0f bytes/request  %10.1f us/request%n",
+                label, requests, (double) allocated / requests, elapsed / 1000.0 / requests);
+        if(sink instanceof List<?> list && list.isEmpty()){
+            System.out.println("no rows read");
+        }
+    }
+}
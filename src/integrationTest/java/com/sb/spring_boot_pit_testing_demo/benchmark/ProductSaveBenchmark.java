@@ -0,0 +1,87 @@
+package com.sb.spring_boot_pit_testing_demo.benchmark;
+
+import com.sb.spring_boot_pit_testing_demo.SpringBootPitTestingDemoApplication;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Compares the JPA merge save (saveAndFlush) with the native MERGE INTO upsert on embedded H2.
+ * Prints statements per save and mean latency for an insert pass followed by an update pass of the
+ * rows it inserted. Row counts are checked around every pass, so an "update" that inserted fails the run.
+ */
+public class ProductSaveBenchmark {
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootPitTestingDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.properties.hibernate.generate_statistics=true")
+                .run(args)) {
+            ProductRepository productRepository = context.getBean(ProductRepository.class);
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+            Benchmark benchmark = new Benchmark(productRepository, jdbcTemplate, statistics);
+
+            // the id is generated, so a new entity is persisted whatever id it would be given
+            LongConsumer mergeInsert = id -> productRepository.saveAndFlush(new Product(null, "Product", 1000L, null));
+            // a detached entity with a version is merged into the existing row: select, then update
+            LongConsumer mergeUpdate = id -> productRepository.saveAndFlush(new Product(id, "Product " + id, 1001L, 0L));
+            LongConsumer upsert = id -> productRepository.upsert(id, "Product " + id, 1000L);
+
+            // every pass gets rows of its own; identity ids follow the current maximum, and upserts stay above
+            // them so that no later insert collides with an explicit id
+            benchmark.mergePasses("warm-up", 2000, mergeInsert, mergeUpdate);
+            benchmark.mergePasses("saveAndFlush", rows, mergeInsert, mergeUpdate);
+            benchmark.upsertPasses("warm-up", 2000, upsert);
+            benchmark.upsertPasses("upsert", rows, upsert);
+        }
+    }
+
+    private record Benchmark(ProductRepository productRepository, JdbcTemplate jdbcTemplate, Statistics statistics) {
+
+        void mergePasses(String label, int rows, LongConsumer insert, LongConsumer update) {
+            long firstId = maxId() + 1;
+            run(label + " insert", firstId, rows, insert, rows);
+            if(maxId() != firstId + rows - 1){
+                throw new IllegalStateException(label + ": generated ids do not follow " + (firstId - 1));
+            }
+            run(label + " update", firstId, rows, update, 0);
+        }
+
+        void upsertPasses(String label, int rows, LongConsumer upsert) {
+            long firstId = maxId() + 1;
+            run(label + " insert", firstId, rows, upsert, rows);
+            run(label + " update", firstId, rows, upsert, 0);
+        }
+
+        private void run(String label, long firstId, int rows, LongConsumer save, long expectedNewRows) {
+            long before = productRepository.count();
+            statistics.clear();
+            long start = System.nanoTime();
+            for (long id = firstId; id < firstId + rows; id++) {
+                save.accept(id);
+            }
+            long elapsed = System.nanoTime() - start;
+            long statements = statistics.getPrepareStatementCount();
+            long newRows = productRepository.count() - before;
+            if(newRows != expectedNewRows){
+                throw new IllegalStateException(label + ": expected " + expectedNewRows + " new rows, got " + newRows);
+            }
+            System.out.printf("%-22s %8d rows  %8d new  %6.2f statements/save  %8.1f us/save%n",
+                    label, rows, newRows, (double) statements / rows, elapsed / 1000.0 / rows);
+        }
+
+        private long maxId() {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM products", Long.class);
+            return maxId == null ? 0 : maxId;
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.sb.spring_boot_pit_testing_demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class SpringBootPitTestingDemoApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(SpringBootPitTestingDemoApplication.class, args);
@@ -0,0 +1,110 @@
+package com.sb.spring_boot_pit_testing_demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "products")
+public class ProductProperties {
+
+    private Batch batch = new Batch();
+
+    private GroupCommit groupCommit = new GroupCommit();
+
+    private Cache cache = new Cache();
+
+    private IdFilter idFilter = new IdFilter();
+
+    private Snapshot snapshot = new Snapshot();
+
+    private OffHeap offHeap = new OffHeap();
+
+    private SnapshotFile snapshotFile = new SnapshotFile();
+
+    private Suggest suggest = new Suggest();
+
+    private Search search = new Search();
+
+    private Stats stats = new Stats();
+
+    private BulkRead bulkRead = new BulkRead();
+
+    @Data
+    public static class Batch {
+        // rows written per transaction by POST /products/batch
+        private int chunkSize = 500;
+    }
+
+    @Data
+    public static class GroupCommit {
+        // when on, concurrent saveProduct calls share one transaction per window
+        private boolean enabled = false;
+        // how long the first queued write waits for company before its batch is committed
+        private Duration window = Duration.ofMillis(2);
+        private int maxBatchSize = 256;
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        // zero keeps entries until they are evicted or invalidated by a save
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class IdFilter {
+        private boolean enabled = true;
+        private double falsePositiveRate = 0.01;
+        // lower bound for the filter size; it is otherwise sized at twice the row count found at startup
+        private long minimumCapacity = 1_000_000;
+    }
+
+    @Data
+    public static class Snapshot {
+        // serve getAllProducts from an in-memory copy of the catalog kept current by saves
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class OffHeap {
+        // serve getProductById from a copy of the catalog held in direct memory instead of the heap
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class SnapshotFile {
+        // write the catalog snapshot to disk and serve reads from it after a restart until the snapshot is loaded;
+        // needs the snapshot enabled
+        private boolean enabled = false;
+        private String path = "data/catalog.snapshot";
+        private Duration writeInterval = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Suggest {
+        private boolean enabled = true;
+        // how often recorded views are folded into the suggestion ranking
+        private Duration rerankInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Search {
+        // inverted index behind GET /products/search; searches are rejected while it is off or still building
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class Stats {
+        // price aggregates behind GET /products/stats, kept current by saves
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class BulkRead {
+        // rows the JDBC driver fetches per round trip during full-catalog scans
+        private int fetchSize = 1000;
+    }
+}
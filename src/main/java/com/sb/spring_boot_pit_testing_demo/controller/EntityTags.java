@@ -0,0 +1,27 @@
+package com.sb.spring_boot_pit_testing_demo.controller;
+
+/**
+ * Version tags for If-Match; If-None-Match is left to {@link org.springframework.web.context.request.WebRequest#checkNotModified(String)}.
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    static String ofVersion(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // If-Match: a single strong version tag; null when the header names anything else
+    static Long parseVersion(String ifMatch) {
+        String tag = ifMatch.trim();
+        if(tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"'){
+            return null;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
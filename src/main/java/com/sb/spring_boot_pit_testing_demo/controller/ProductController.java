@@ -1,39 +1,202 @@
 package com.sb.spring_boot_pit_testing_demo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.spring_boot_pit_testing_demo.exception.VersionConflictException;
 import com.sb.spring_boot_pit_testing_demo.service.ProductService;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ExportFormat;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductBatchItemResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductBatchResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductCacheStats;
 import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductIdFilterStats;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductLookupResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPage;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPriceStats;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSearchResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSuggestion;
+import com.sb.spring_boot_pit_testing_demo.service.dto.SerializedCatalog;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping("/products")
 public class ProductController {
+    static final Duration EXPORT_TIMEOUT = Duration.ofMinutes(30);
+
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ObjectMapper objectMapper) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{productId}")
-    @ResponseStatus(HttpStatus.OK)
-    public ProductDTO getProductById(@PathVariable Long productId) {
+    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long productId, WebRequest request) {
         ProductDTO productDTO = productService.getProductById(productId);
-        return productDTO;
+        // sets the ETag header, and answers 304 without a body when If-None-Match names it
+        if(productDTO.getVersion() != null && request.checkNotModified(EntityTags.ofVersion(productDTO.getVersion()))){
+            return null;
+        }
+        return ResponseEntity.ok(productDTO);
     }
 
     @GetMapping
+    public ResponseEntity<byte[]> getAllProducts(ServletWebRequest request) {
+        SerializedCatalog catalog = productService.getSerializedCatalog();
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        // on the servlet response directly, so that a 304 carries it too
+        request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        // the gzip bytes are a different representation, so they get their own strong tag
+        if(catalog.getTag() != null && request.checkNotModified("\"" + catalog.getTag() + (gzip ? "-gz\"" : "\""))){
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if(gzip){
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(catalog.getGzip());
+        }
+        return response.body(catalog.getJson());
+    }
+
+    // gzip listed without q=0; the catalog is only kept as identity and gzip, so other codings are ignored
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if(acceptEncoding == null){
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if(parts[0].trim().equalsIgnoreCase("gzip")){
+                String weight = parts.length > 1 ? parts[1].trim() : "q=1";
+                try {
+                    return !weight.startsWith("q=") || Double.parseDouble(weight.substring(2)) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    @GetMapping(params = "ids")
+    @ResponseStatus(HttpStatus.OK)
+    public ProductLookupResult getProductsByIds(@RequestParam List<Long> ids) {
+        return productService.getProductsByIds(ids);
+    }
+
+    @PostMapping("/lookup")
+    @ResponseStatus(HttpStatus.OK)
+    public ProductLookupResult lookupProducts(@RequestBody List<Long> ids) {
+        return productService.getProductsByIds(ids);
+    }
+
+    @GetMapping(params = "limit")
+    @ResponseStatus(HttpStatus.OK)
+    public ProductPage getProductPage(@RequestParam(required = false) String after, @RequestParam int limit) {
+        return productService.getProductPage(after, limit);
+    }
+
+    // the sort=price value match makes this mapping win over the plain limit one when both apply
+    @GetMapping(params = "sort=price")
+    @ResponseStatus(HttpStatus.OK)
+    public ProductPage getProductPageByPrice(@RequestParam(required = false) BigDecimal minPrice,
+                                             @RequestParam(required = false) BigDecimal maxPrice,
+                                             @RequestParam(required = false) String after,
+                                             @RequestParam(defaultValue = "100") int limit) {
+        return productService.getProductPageByPrice(minPrice, maxPrice, after, limit);
+    }
+
+    @GetMapping("/top")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ProductDTO> getTopProductsByPrice(@RequestParam(defaultValue = "cheapest") String order,
+                                                  @RequestParam(defaultValue = "50") int limit) {
+        return productService.getTopProductsByPrice(order, limit);
+    }
+
+    @GetMapping("/suggest")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ProductSuggestion> suggestProducts(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        return productService.suggestProducts(prefix, limit);
+    }
+
+    @GetMapping("/search")
     @ResponseStatus(HttpStatus.OK)
-    public List<ProductDTO> getAllProducts() {
-        List<ProductDTO> products = productService.getAllProducts();
-        return products;
+    public ProductSearchResult searchProducts(@RequestParam String q, @RequestParam(required = false) String after,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        return productService.searchProducts(q, after, limit);
+    }
+
+    @GetMapping("/stats")
+    @ResponseStatus(HttpStatus.OK)
+    public ProductPriceStats getPriceStats() {
+        return productService.getPriceStats();
+    }
+
+    @GetMapping("/cache/stats")
+    @ResponseStatus(HttpStatus.OK)
+    public ProductCacheStats getCacheStats() {
+        return productService.getCacheStats();
+    }
+
+    @GetMapping("/id-filter/stats")
+    @ResponseStatus(HttpStatus.OK)
+    public ProductIdFilterStats getIdFilterStats() {
+        return productService.getIdFilterStats();
+    }
+
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportProducts(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        response.setContentType(exportFormat.getMediaType());
+        // an export streams for as long as the table takes to read; other async requests keep the default timeout
+        return new WebAsyncTask<>(EXPORT_TIMEOUT.toMillis(), () -> {
+            productService.exportProducts(exportFormat, response.getOutputStream());
+            return null;
+        });
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void saveProduct(@RequestBody ProductDTO productDTO) {
-        productService.saveProduct(productDTO);
+    public ResponseEntity<Void> saveProduct(@RequestBody ProductDTO productDTO,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        // "*" only asks for the resource to exist, which an upsert never needs to check
+        if(ifMatch == null || ifMatch.trim().equals("*")){
+            productService.saveProduct(productDTO);
+            return ResponseEntity.noContent().build();
+        }
+        Long expectedVersion = EntityTags.parseVersion(ifMatch);
+        if(expectedVersion == null){
+            throw new VersionConflictException(String.valueOf(productDTO.getId()));
+        }
+        long version = productService.saveProductIfMatch(productDTO, expectedVersion);
+        return ResponseEntity.noContent().eTag(EntityTags.ofVersion(version)).build();
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public ProductBatchResult saveProducts(InputStream body) throws IOException {
+        try (ProductJsonArrayReader products = new ProductJsonArrayReader(objectMapper, body)) {
+            ProductBatchResult result = productService.saveProducts(products);
+            if(products.error() != null){
+                // earlier chunks are already committed, so the bad element is reported as the last item, not as a 400
+                List<ProductBatchItemResult> items = new ArrayList<>(result.getItems());
+                items.add(new ProductBatchItemResult(items.size(), null, false, products.error()));
+                result.setItems(items);
+                result.setFailed(result.getFailed() + 1);
+            }
+            return result;
+        }
     }
 }
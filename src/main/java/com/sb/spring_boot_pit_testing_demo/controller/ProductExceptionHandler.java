@@ -0,0 +1,48 @@
+package com.sb.spring_boot_pit_testing_demo.controller;
+
+import com.sb.spring_boot_pit_testing_demo.exception.InvalidValueException;
+import com.sb.spring_boot_pit_testing_demo.exception.NotFoundException;
+import com.sb.spring_boot_pit_testing_demo.exception.ServiceUnavailableException;
+import com.sb.spring_boot_pit_testing_demo.exception.VersionConflictException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps the domain exceptions to RFC 7807 problem responses directly, without going through the
+ * servlet error page machinery.
+ */
+@RestControllerAdvice
+public class ProductExceptionHandler {
+
+    @ExceptionHandler(NotFoundException.class)
+    public ProblemDetail handleNotFound(NotFoundException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, e.getMessage());
+        problem.setTitle("Product not found");
+        return problem;
+    }
+
+    @ExceptionHandler(InvalidValueException.class)
+    public ProblemDetail handleInvalidValue(InvalidValueException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+        problem.setTitle("Invalid value");
+        problem.setProperty("field", e.getField());
+        return problem;
+    }
+
+    @ExceptionHandler(VersionConflictException.class)
+    public ProblemDetail handleVersionConflict(VersionConflictException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+        problem.setTitle("Version mismatch");
+        return problem;
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ProblemDetail handleServiceUnavailable(ServiceUnavailableException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        problem.setTitle("Not available yet");
+        problem.setProperty("feature", e.getFeature());
+        return problem;
+    }
+}
@@ -0,0 +1,132 @@
+package com.sb.spring_boot_pit_testing_demo.controller;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.sb.spring_boot_pit_testing_demo.exception.InvalidValueException;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a JSON array of products one element at a time, so a bulk load never holds the whole body in memory.
+ * An element that is well-formed JSON but does not map to a product is skipped: {@link #next()} throws an
+ * {@link InvalidValueException} for it and the following call carries on with the next element. Elements
+ * before malformed JSON may already be saved by then, so malformed input past the opening bracket ends the
+ * iteration and is reported by {@link #error()} instead of being thrown.
+ */
+class ProductJsonArrayReader implements Iterator<ProductDTO>, Closeable {
+    private final JsonParser parser;
+    private final ObjectReader productReader;
+    private ProductDTO next;
+    private InvalidValueException skipped;
+    private int index;
+    private boolean finished;
+    private String error;
+
+    ProductJsonArrayReader(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+        this.parser = objectMapper.getFactory().createParser(inputStream);
+        this.productReader = objectMapper.readerFor(ProductDTO.class);
+        if(parser.nextToken() != JsonToken.START_ARRAY){
+            throw new InvalidValueException("products");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(next == null && skipped == null && !finished){
+            next = readNext();
+        }
+        return next != null || skipped != null;
+    }
+
+    @Override
+    public ProductDTO next() {
+        if(!hasNext()){
+            throw new NoSuchElementException();
+        }
+        if(skipped != null){
+            InvalidValueException unmapped = skipped;
+            skipped = null;
+            throw unmapped;
+        }
+        ProductDTO product = next;
+        next = null;
+        return product;
+    }
+
+    private ProductDTO readNext() {
+        // the array's context, which the parser is back in once an element has been read or skipped
+        JsonStreamContext array = parser.getParsingContext();
+        String element = "products[" + index++ + "]";
+        try {
+            JsonToken token = parser.nextToken();
+            if(token == JsonToken.END_ARRAY){
+                finished = true;
+                return null;
+            }
+            if(token != JsonToken.START_OBJECT){
+                skipped = new InvalidValueException(element);
+            } else {
+                try {
+                    return productReader.readValue(parser);
+                } catch (JsonMappingException e) {
+                    skipped = new InvalidValueException(element + fieldOf(e));
+                }
+            }
+            // the mismatch can sit at any depth inside the element; skip to the element's end
+            parser.skipChildren();
+            while (parser.getParsingContext() != array) {
+                if(parser.nextToken() == null){
+                    skipped = null;
+                    return stop("unexpected end of input", parser.currentLocation());
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (JsonProcessingException e) {
+            skipped = null;
+            return stop(e.getOriginalMessage(), e.getLocation());
+        } catch (IOException e) {
+            skipped = null;
+            return stop(e.getMessage(), parser.currentLocation());
+        }
+    }
+
+    // ".name" for a mismatch in the name field, empty when the element as a whole did not map
+    private static String fieldOf(JsonMappingException e) {
+        StringBuilder field = new StringBuilder();
+        for (JsonMappingException.Reference reference : e.getPath()) {
+            if(reference.getFieldName() != null){
+                field.append('.').append(reference.getFieldName());
+            }
+        }
+        return field.toString();
+    }
+
+    private ProductDTO stop(String reason, JsonLocation location) {
+        finished = true;
+        error = location == null ? "reading stopped: " + reason
+                : "reading stopped at line " + location.getLineNr() + ", column " + location.getColumnNr() + ": " + reason;
+        return null;
+    }
+
+    // why the array was not read to its end, or null when it was
+    String error() {
+        return error;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,11 @@
+package com.sb.spring_boot_pit_testing_demo.exception;
+
+/**
+ * Base for exceptions that report an expected outcome rather than a fault; no stack trace is captured.
+ */
+public abstract class ExpectedException extends RuntimeException{
+
+    protected ExpectedException(String message){
+        super(message, null, false, false);
+    }
+}
@@ -1,15 +1,14 @@
 package com.sb.spring_boot_pit_testing_demo.exception;
 
-import static org.springframework.util.StringUtils.hasText;
+public class InvalidValueException extends ExpectedException{
 
-public class InvalidValueException extends RuntimeException{
-
-    private String field;
+    private final String field;
     public InvalidValueException(String field){
+        super("invalid value provided for the field "+ field);
         this.field = field;
     }
-    @Override
-    public String getMessage(){
-        return "invalid value provided for the field "+ field;
+
+    public String getField(){
+        return field;
     }
 }
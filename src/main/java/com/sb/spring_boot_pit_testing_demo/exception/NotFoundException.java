@@ -2,23 +2,19 @@ package com.sb.spring_boot_pit_testing_demo.exception;
 
 import static org.springframework.util.StringUtils.hasText;
 
-public class NotFoundException extends RuntimeException{
+public class NotFoundException extends ExpectedException{
 
-    private String productId;
+    private final String productId;
     public NotFoundException(String productId){
+        super(hasText(productId) ? "Product not found with the ID " +productId : "Products not found");
         this.productId = productId;
     }
 
     public NotFoundException(){
-        this.productId = null;
+        this(null);
     }
 
-    @Override
-    public String getMessage(){
-        if(hasText(productId)){
-            return "Product not found with the ID " +productId;
-        } else {
-            return "Products not found";
-        }
+    public String getProductId(){
+        return productId;
     }
 }
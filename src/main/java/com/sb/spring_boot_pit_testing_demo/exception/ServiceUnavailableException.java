@@ -0,0 +1,14 @@
+package com.sb.spring_boot_pit_testing_demo.exception;
+
+public class ServiceUnavailableException extends ExpectedException{
+
+    private final String feature;
+    public ServiceUnavailableException(String feature){
+        super("Product " + feature + " is not available yet, retry shortly");
+        this.feature = feature;
+    }
+
+    public String getFeature(){
+        return feature;
+    }
+}
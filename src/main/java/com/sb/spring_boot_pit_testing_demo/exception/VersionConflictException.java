@@ -0,0 +1,14 @@
+package com.sb.spring_boot_pit_testing_demo.exception;
+
+public class VersionConflictException extends ExpectedException{
+
+    private final String productId;
+    public VersionConflictException(String productId){
+        super("Product " + productId + " has been modified since the supplied version");
+        this.productId = productId;
+    }
+
+    public String getProductId(){
+        return productId;
+    }
+}
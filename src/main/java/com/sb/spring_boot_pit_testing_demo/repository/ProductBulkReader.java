@@ -0,0 +1,84 @@
+package com.sb.spring_boot_pit_testing_demo.repository;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.stereotype.Component;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Full-catalog scans over a Hibernate StatelessSession and a forward-only cursor. A stateless session
+ * has no persistence context and nothing to flush, so memory stays flat however many rows are read,
+ * and rows are projected straight into DTOs.
+ * <p>
+ * Each stream holds its own session, transaction and JDBC connection until it is closed, so callers
+ * must close it, typically with try-with-resources.
+ */
+@Component
+public class ProductBulkReader {
+    static final String ALL_PRODUCTS = "select new com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO("
+            + "p.id, p.name, p.price, p.version) from Product p order by p.id";
+    static final String ALL_IDS = "select p.id from Product p";
+
+    private final SessionFactory sessionFactory;
+    private final int fetchSize;
+
+    public ProductBulkReader(EntityManagerFactory entityManagerFactory, ProductProperties productProperties) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.fetchSize = Math.max(1, productProperties.getBulkRead().getFetchSize());
+    }
+
+    // every product in id order
+    public Stream<ProductDTO> streamAll() {
+        return scroll(ALL_PRODUCTS, ProductDTO.class);
+    }
+
+    // every product id, in no particular order
+    public LongStream streamAllIds() {
+        return scroll(ALL_IDS, Long.class).mapToLong(Long::longValue);
+    }
+
+    private <R> Stream<R> scroll(String query, Class<R> resultType) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            // drivers such as PostgreSQL only honour the fetch size inside a transaction
+            Transaction transaction = session.beginTransaction();
+            ScrollableResults<R> results = session.createSelectionQuery(query, resultType)
+                    .setFetchSize(fetchSize)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            Spliterator<R> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super R> action) {
+                    if(!results.next()){
+                        return false;
+                    }
+                    action.accept(results.get());
+                    return true;
+                }
+            };
+            return StreamSupport.stream(rows, false).onClose(() -> {
+                try {
+                    results.close();
+                    // nothing was written; ending the transaction just releases the cursor
+                    transaction.commit();
+                } finally {
+                    session.close();
+                }
+            });
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+}
@@ -1,8 +1,69 @@
 package com.sb.spring_boot_pit_testing_demo.repository;
 
 import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    // Custom query methods can be defined here if needed
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    /*
+     * Request-path reads project straight into ProductDTO: no managed entities, no dirty-checking snapshots
+     * and no entity-to-DTO copy. Read-only transactions also skip the flush before the query.
+     */
+    String DTO_SELECT = "select new com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO(p.id, p.name, p.price, p.version) "
+            + "from Product p ";
+
+    @Transactional(readOnly = true)
+    @Query(DTO_SELECT + "where p.id = :id")
+    Optional<ProductDTO> findDtoById(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    @Query(DTO_SELECT + "order by p.id")
+    List<ProductDTO> findAllDtos();
+
+    @Transactional(readOnly = true)
+    @Query(DTO_SELECT + "where p.id in :ids")
+    List<ProductDTO> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    // keyset page: seeks on the primary key index so deep pages cost the same as the first one
+    @Transactional(readOnly = true)
+    @Query(DTO_SELECT + "where p.id > :afterId order by p.id")
+    List<ProductDTO> findDtoPage(@Param("afterId") long afterId, Limit limit);
+
+    /*
+     * Keyset page of a price range in (price, id) order. The leading bound seeks on the (price, id) index;
+     * the first page passes the range minimum and id 0.
+     */
+    @Transactional(readOnly = true)
+    @Query(DTO_SELECT + "where p.price >= :afterPrice and p.price <= :maxPrice "
+            + "and (p.price > :afterPrice or p.id > :afterId) order by p.price, p.id")
+    List<ProductDTO> findPriceRangePage(@Param("afterPrice") long afterPrice, @Param("afterId") long afterId,
+                                        @Param("maxPrice") long maxPrice, Limit limit);
+
+    // both walk the (price, id) index from one end and stop after the limit
+    @Transactional(readOnly = true)
+    @Query(DTO_SELECT + "order by p.price, p.id")
+    List<ProductDTO> findCheapest(Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(DTO_SELECT + "order by p.price desc, p.id desc")
+    List<ProductDTO> findMostExpensive(Limit limit);
+
+    // prefix match for suggestions while the in-memory index is not built yet
+    List<Product> findByNameStartingWithIgnoreCaseOrderByNameAsc(String prefix, Limit limit);
+
+    // optimistic write: updates nothing unless the stored version is still the expected one
+    @Modifying
+    @Transactional
+    @Query("update Product p set p.name = :name, p.price = :price, p.version = p.version + 1 where p.id = :id and p.version = :version")
+    int updateIfVersion(@Param("id") Long id, @Param("name") String name, @Param("price") long price, @Param("version") long version);
 }
@@ -0,0 +1,14 @@
+package com.sb.spring_boot_pit_testing_demo.repository;
+
+import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    // single statement insert-or-update; returns the version the row ended up with
+    long upsert(Long id, String name, long price);
+
+    // inserts or replaces every product in one transaction, one statement per chunk, then sets the stored versions on them
+    void upsertAll(List<Product> products);
+}
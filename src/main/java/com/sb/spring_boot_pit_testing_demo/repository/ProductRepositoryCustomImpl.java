@@ -0,0 +1,96 @@
+package com.sb.spring_boot_pit_testing_demo.repository;
+
+import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    /*
+     * Products carry client supplied ids while the entity uses IDENTITY generation, which makes Hibernate
+     * both merge (select first) and give up on insert batching. A MERGE ... USING lets H2 decide between
+     * insert and update itself. The version is bumped from the row it has locked, so concurrent writers of
+     * one id always end up with distinct versions, and the FINAL TABLE delta reports them in the same
+     * round trip.
+     */
+    static final String UPSERT_PREFIX = "SELECT id, version FROM FINAL TABLE (MERGE INTO products t USING (VALUES ";
+    static final String UPSERT_ROW = "(CAST(? AS BIGINT), CAST(? AS VARCHAR(255)), CAST(? AS BIGINT))";
+    static final String UPSERT_SUFFIX = ") AS s(id, name, price) ON t.id = s.id "
+            + "WHEN MATCHED THEN UPDATE SET name = s.name, price = s.price, version = t.version + 1 "
+            + "WHEN NOT MATCHED THEN INSERT (id, name, price, version) VALUES (s.id, s.name, s.price, 0))";
+    static final String DUPLICATE_KEY = "23505";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public long upsert(Long id, String name, long price) {
+        Product product = new Product(id, name, price, null);
+        entityManager.unwrap(Session.class).doWork(connection -> merge(connection, List.of(product)));
+        return product.getVersion();
+    }
+
+    @Override
+    @Transactional
+    public void upsertAll(List<Product> products) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            // one MERGE may not touch a row twice, so a repeated id starts the next statement
+            List<Product> statement = new ArrayList<>(products.size());
+            Set<Long> ids = new HashSet<>(products.size() * 2);
+            for (Product product : products) {
+                if(!ids.add(product.getId())){
+                    merge(connection, statement);
+                    statement.clear();
+                    ids.clear();
+                    ids.add(product.getId());
+                }
+                statement.add(product);
+            }
+            if(!statement.isEmpty()){
+                merge(connection, statement);
+            }
+        });
+    }
+
+    private static void merge(Connection connection, List<Product> products) throws SQLException {
+        String sql = UPSERT_PREFIX + String.join(", ", Collections.nCopies(products.size(), UPSERT_ROW)) + UPSERT_SUFFIX;
+        Map<Long, Long> versions = new HashMap<>(products.size() * 2);
+        for (int attempt = 0; ; attempt++) {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int parameter = 1;
+                for (Product product : products) {
+                    statement.setLong(parameter++, product.getId());
+                    statement.setString(parameter++, product.getName());
+                    statement.setLong(parameter++, product.getPrice());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        versions.put(resultSet.getLong(1), resultSet.getLong(2));
+                    }
+                }
+                break;
+            } catch (SQLException e) {
+                // a concurrent first insert of the same id won; the row exists now, so the second pass updates it
+                if(attempt > 0 || !DUPLICATE_KEY.equals(e.getSQLState())){
+                    throw e;
+                }
+            }
+        }
+        products.forEach(product -> product.setVersion(versions.get(product.getId())));
+    }
+}
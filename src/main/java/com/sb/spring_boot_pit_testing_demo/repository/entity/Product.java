@@ -7,12 +7,11 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Entity
 @Data
 @Builder
-@Table(name = "products")
+// (price, id) serves price range scans and their keyset pages straight from the index
+@Table(name = "products", indexes = @Index(name = "idx_products_price_id", columnList = "price, id"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
@@ -23,12 +22,18 @@ public class Product {
     @Column(nullable = false)
     private String name;
 
+    // minor units with Prices.SCALE implied decimals
+    @Column(nullable = false)
+    private long price;
+
+    @Version
     @Column(nullable = false)
-    private BigDecimal price;
+    private Long version;
 
     public Product(ProductDTO product){
         this.id = product.getId();
         this.name = product.getName();
         this.price = product.getPrice();
+        this.version = product.getVersion();
     }
 }
\ No newline at end of file
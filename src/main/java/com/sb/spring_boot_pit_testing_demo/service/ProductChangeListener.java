@@ -0,0 +1,10 @@
+package com.sb.spring_boot_pit_testing_demo.service;
+
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+
+/**
+ * Notified after a product write has been committed, so in-memory views of the catalog can follow it.
+ */
+public interface ProductChangeListener {
+    void onProductSaved(ProductDTO product);
+}
@@ -1,11 +1,39 @@
 package com.sb.spring_boot_pit_testing_demo.service;
 
+import com.sb.spring_boot_pit_testing_demo.service.dto.ExportFormat;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductBatchResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductCacheStats;
 import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductIdFilterStats;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductLookupResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPage;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPriceStats;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSearchResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSuggestion;
+import com.sb.spring_boot_pit_testing_demo.service.dto.SerializedCatalog;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 public interface ProductService {
     ProductDTO getProductById(Long productId);
     List<ProductDTO> getAllProducts();
+    SerializedCatalog getSerializedCatalog();
+    ProductLookupResult getProductsByIds(Collection<Long> productIds);
+    ProductPage getProductPage(String after, int limit);
+    ProductPage getProductPageByPrice(BigDecimal minPrice, BigDecimal maxPrice, String after, int limit);
+    List<ProductDTO> getTopProductsByPrice(String order, int limit);
+    List<ProductSuggestion> suggestProducts(String prefix, int limit);
+    ProductSearchResult searchProducts(String query, String after, int limit);
     void saveProduct(ProductDTO product);
+    long saveProductIfMatch(ProductDTO product, long expectedVersion);
+    ProductBatchResult saveProducts(Iterator<ProductDTO> products);
+    ProductCacheStats getCacheStats();
+    ProductIdFilterStats getIdFilterStats();
+    ProductPriceStats getPriceStats();
+    void exportProducts(ExportFormat format, OutputStream outputStream) throws IOException;
 }
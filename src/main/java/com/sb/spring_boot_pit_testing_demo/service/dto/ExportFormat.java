@@ -0,0 +1,25 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import com.sb.spring_boot_pit_testing_demo.exception.InvalidValueException;
+import lombok.Getter;
+
+@Getter
+public enum ExportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    ExportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public static ExportFormat from(String format) {
+        for (ExportFormat exportFormat : values()) {
+            if(exportFormat.name().equalsIgnoreCase(format)){
+                return exportFormat;
+            }
+        }
+        throw new InvalidValueException("format");
+    }
+}
@@ -0,0 +1,91 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Prices are held as a {@code long} count of minor units (cents) with a fixed scale of {@link #SCALE}.
+ * The JSON form stays a decimal number, so clients keep sending and receiving {@code 12.5} or {@code 12.50}.
+ */
+public final class Prices {
+    public static final int SCALE = 2;
+    private static final long UNIT = 100;
+
+    private Prices() {
+    }
+
+    // rounds half up, the same way the previous numeric(38, 2) column stored extra digits
+    public static long toMinorUnits(BigDecimal price) {
+        return price.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public static String format(long minorUnits) {
+        long units = Math.abs(minorUnits / UNIT);
+        int cents = (int) Math.abs(minorUnits % UNIT);
+        StringBuilder text = new StringBuilder(24);
+        if(minorUnits < 0){
+            text.append('-');
+        }
+        text.append(units).append('.');
+        if(cents < 10){
+            text.append('0');
+        }
+        return text.append(cents).toString();
+    }
+
+    public static class Serializer extends StdSerializer<Long> {
+        public Serializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long minorUnits, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            // raw numeric text: no BigDecimal on the way out
+            generator.writeNumber(format(minorUnits));
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<Long> {
+        public Deserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            try {
+                if(token == JsonToken.VALUE_NUMBER_INT){
+                    return Math.multiplyExact(parser.getLongValue(), UNIT);
+                }
+                if(token == JsonToken.VALUE_NUMBER_FLOAT){
+                    return toMinorUnits(parser.getDecimalValue());
+                }
+                if(token == JsonToken.VALUE_STRING){
+                    return toMinorUnits(new BigDecimal(parser.getText().trim()));
+                }
+            } catch (ArithmeticException | NumberFormatException e) {
+                return (Long) context.handleWeirdNumberValue(Long.class, null, "not a price in range: %s", parser.getText());
+            }
+            return (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+
+        @Override
+        public Long getNullValue(DeserializationContext context) {
+            // a missing price becomes 0, which validation rejects like the old null
+            return 0L;
+        }
+    }
+}
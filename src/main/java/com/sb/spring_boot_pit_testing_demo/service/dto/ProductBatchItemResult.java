@@ -0,0 +1,22 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchItemResult {
+
+    // position of the item in the submitted array
+    private int index;
+
+    private Long id;
+
+    private boolean saved;
+
+    private String error;
+}
@@ -0,0 +1,21 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchResult {
+
+    private int saved;
+
+    private int failed;
+
+    private List<ProductBatchItemResult> items;
+}
@@ -0,0 +1,29 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCacheStats {
+
+    private boolean enabled;
+
+    private long size;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private double hitRate;
+
+    private long evictionCount;
+
+    private long loadCount;
+
+    private double averageLoadMillis;
+}
@@ -1,13 +1,13 @@
 package com.sb.spring_boot_pit_testing_demo.service.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Data
 @Builder
 @NoArgsConstructor
@@ -18,11 +18,18 @@ public class ProductDTO {
 
     private String name;
 
-    private BigDecimal price;
+    // minor units, see Prices
+    @JsonSerialize(using = Prices.Serializer.class)
+    @JsonDeserialize(using = Prices.Deserializer.class)
+    private long price;
+
+    // bumped on every write; sent back as the ETag and expected in If-Match
+    private Long version;
 
     public ProductDTO(Product product){
         this.id = product.getId();
         this.name = product.getName();
         this.price = product.getPrice();
+        this.version = product.getVersion();
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductIdFilterStats {
+
+    private boolean enabled;
+
+    // false until the startup build has finished; every id is passed through until then
+    private boolean ready;
+
+    private long bits;
+
+    private int hashFunctions;
+
+    private long memoryBytes;
+
+    private double fillRatio;
+
+    private double expectedFalsePositiveRate;
+
+    private long definiteMisses;
+}
@@ -0,0 +1,19 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductLookupResult {
+
+    private List<ProductDTO> products;
+
+    private List<Long> missingIds;
+}
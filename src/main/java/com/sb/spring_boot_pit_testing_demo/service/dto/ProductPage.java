@@ -0,0 +1,20 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPage {
+
+    private List<ProductDTO> items;
+
+    // opaque token for the next page, null once the last page has been returned
+    private String nextCursor;
+}
@@ -0,0 +1,38 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPriceStats {
+
+    // false until the initial scan has finished; the figures are empty until then
+    private boolean ready;
+
+    private long count;
+
+    @JsonSerialize(using = Prices.Serializer.class)
+    private long sum;
+
+    @JsonSerialize(using = Prices.Serializer.class)
+    private Long min;
+
+    @JsonSerialize(using = Prices.Serializer.class)
+    private Long max;
+
+    // rounded to the nearest minor unit
+    @JsonSerialize(using = Prices.Serializer.class)
+    private Long mean;
+
+    // p50, p90, p95 and p99, each within 1.6% of the exact value
+    @JsonSerialize(contentUsing = Prices.Serializer.class)
+    private Map<String, Long> quantiles;
+}
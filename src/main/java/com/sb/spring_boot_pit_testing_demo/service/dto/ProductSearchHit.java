@@ -0,0 +1,20 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchHit {
+
+    private Long id;
+
+    private String name;
+
+    // BM25 relevance; only comparable between hits of the same query
+    private double score;
+}
@@ -0,0 +1,23 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResult {
+
+    private List<ProductSearchHit> items;
+
+    // products matching every term of the query
+    private long total;
+
+    // opaque token for the next page, null once the last page has been returned
+    private String nextCursor;
+}
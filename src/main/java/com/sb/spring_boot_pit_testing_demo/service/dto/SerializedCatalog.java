@@ -0,0 +1,23 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SerializedCatalog {
+
+    // catalog version the bytes were written from, or zero when they are not cacheable
+    private long version;
+
+    // opaque tag for the version, null when the catalog snapshot is not loaded yet
+    private String tag;
+
+    private byte[] json;
+
+    private byte[] gzip;
+}
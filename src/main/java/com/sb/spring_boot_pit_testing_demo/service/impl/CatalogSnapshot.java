@@ -0,0 +1,283 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.service.ProductChangeListener;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, id-ordered copy of the whole catalog. Readers get the current {@link Catalog} with a single
+ * volatile read; saves queue their change and one background thread folds everything queued into a new
+ * copy, so a burst of writes costs one rebuild rather than one per write. Lookups by id go through a
+ * primitive-keyed index that saves update synchronously, so they see a write as soon as it has committed.
+ */
+@Slf4j
+@Component
+public class CatalogSnapshot implements ProductChangeListener {
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(5);
+
+    private final ProductRepository productRepository;
+    private final ProductBulkReader productBulkReader;
+    private final ProductProperties.Snapshot properties;
+    private final Executor executor;
+    private final Queue<ProductDTO> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    // distinguishes catalog versions across restarts, where the version counter starts again
+    private final long epoch = System.currentTimeMillis();
+    private volatile Catalog current;
+    private volatile LongObjectHashMap<ProductDTO> index;
+    // saves are only queued while a load is scanning or once it has finished; a later scan sees earlier ones
+    private volatile boolean loading;
+    // touched by the executor only
+    private int failedLoads;
+
+    @Autowired
+    public CatalogSnapshot(ProductRepository productRepository, ProductBulkReader productBulkReader, ProductProperties productProperties) {
+        this(productRepository, productBulkReader, productProperties, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    // the executor must run tasks one at a time; rebuilds rely on never overlapping
+    CatalogSnapshot(ProductRepository productRepository, ProductBulkReader productBulkReader, ProductProperties productProperties,
+                    Executor executor) {
+        this.productRepository = productRepository;
+        this.productBulkReader = productBulkReader;
+        this.properties = productProperties.getSnapshot();
+        this.executor = executor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(properties.isEnabled()){
+            executor.execute(this::load);
+        }
+    }
+
+    // null until the initial load has finished; callers fall back to the database meanwhile
+    public Catalog current() {
+        return current;
+    }
+
+    // null while the snapshot is not loaded or the id is unknown to it
+    public ProductDTO find(long productId) {
+        LongObjectHashMap<ProductDTO> index = this.index;
+        if(current == null || index == null){
+            return null;
+        }
+        ProductDTO product = index.get(productId);
+        return product == null ? null : copy(product);
+    }
+
+    @Override
+    public void onProductSaved(ProductDTO product) {
+        if(!properties.isEnabled()){
+            return;
+        }
+        ProductDTO copy = copy(product);
+        LongObjectHashMap<ProductDTO> index = this.index;
+        if(index != null){
+            index.merge(copy.getId(), copy, CatalogSnapshot::newer);
+        }
+        if(loading || current != null){
+            pending.add(copy);
+            scheduleRebuild();
+        }
+    }
+
+    // ProductDTO is mutable, so snapshot instances never leave it and callers' instances never enter it
+    static ProductDTO copy(ProductDTO product) {
+        return new ProductDTO(product.getId(), product.getName(), product.getPrice(), product.getVersion());
+    }
+
+    // read-only view that copies each element as it is read, instead of copying the whole list up front
+    static List<ProductDTO> copying(List<ProductDTO> products) {
+        return new CopyingList(products);
+    }
+
+    // listeners can be notified out of commit order, so the higher version always wins
+    static ProductDTO newer(ProductDTO existing, ProductDTO candidate) {
+        if(existing.getVersion() == null || candidate.getVersion() == null){
+            return candidate;
+        }
+        return candidate.getVersion() >= existing.getVersion() ? candidate : existing;
+    }
+
+    private void scheduleRebuild() {
+        if(rebuildScheduled.compareAndSet(false, true)){
+            executor.execute(this::rebuild);
+        }
+    }
+
+    void load() {
+        loading = true;
+        try {
+            loadFromDatabase();
+            failedLoads = 0;
+        } catch (RuntimeException e) {
+            // drop what was queued for this attempt; the next scan reads those rows from the database
+            index = null;
+            pending.clear();
+            Duration delay = retryDelay(failedLoads++);
+            log.warn("catalog snapshot could not be loaded, reads stay on the database; retrying in {}", delay, e);
+            CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS, executor).execute(this::load);
+        } finally {
+            loading = false;
+        }
+    }
+
+    static Duration retryDelay(int failedLoads) {
+        Duration delay = FIRST_RETRY_DELAY.multipliedBy(1L << Math.min(failedLoads, 20));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+    }
+
+    private void loadFromDatabase() {
+        long start = System.nanoTime();
+        LongObjectHashMap<ProductDTO> index = new LongObjectHashMap<>((int) Math.min(Integer.MAX_VALUE, productRepository.count()));
+        // published before scanning so that saves made during the load land in it as well
+        this.index = index;
+        List<ProductDTO> products = new ArrayList<>();
+        try (Stream<ProductDTO> rows = productBulkReader.streamAll()) {
+            rows.forEach(product -> {
+                products.add(product);
+                index.merge(product.getId(), product, CatalogSnapshot::newer);
+            });
+        }
+        current = new Catalog(epoch, 1, products.toArray(new ProductDTO[0]));
+        log.info("catalog snapshot loaded {} products in {} ms", products.size(), (System.nanoTime() - start) / 1_000_000);
+        // writes that arrived while loading are replayed on top; upserts make that idempotent
+        scheduleRebuild();
+    }
+
+    void rebuild() {
+        // cleared before draining: a write queued from here on schedules one more pass
+        rebuildScheduled.set(false);
+        Catalog catalog = current;
+        if(catalog == null){
+            return;
+        }
+        TreeMap<Long, ProductDTO> changes = new TreeMap<>();
+        ProductDTO change;
+        while ((change = pending.poll()) != null) {
+            changes.merge(change.getId(), change, CatalogSnapshot::newer);
+        }
+        if(changes.isEmpty()){
+            return;
+        }
+        current = catalog.apply(changes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if(executor instanceof ExecutorService executorService){
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * One immutable version of the catalog, ordered by id.
+     */
+    public static final class Catalog {
+        private final long epoch;
+        private final long version;
+        private final ProductDTO[] products;
+        private final List<ProductDTO> view;
+        private final List<ProductDTO> copies;
+
+        Catalog(long epoch, long version, ProductDTO[] products) {
+            this.epoch = epoch;
+            this.version = version;
+            this.products = products;
+            this.view = Collections.unmodifiableList(Arrays.asList(products));
+            this.copies = copying(view);
+        }
+
+        public long epoch() {
+            return epoch;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        // unique per catalog content for the lifetime of the deployment; used as the entity tag
+        public String tag() {
+            return Long.toString(epoch, 36) + "-" + version;
+        }
+
+        // every element is a fresh copy
+        public List<ProductDTO> products() {
+            return copies;
+        }
+
+        // the snapshot's own instances, for read-only use inside this package without a copy per element
+        List<ProductDTO> sharedProducts() {
+            return view;
+        }
+
+        // merges the id-ordered changes into a new array in one pass; the old array is left untouched
+        Catalog apply(TreeMap<Long, ProductDTO> changes) {
+            List<ProductDTO> merged = new ArrayList<>(products.length + changes.size());
+            int index = 0;
+            for (ProductDTO change : changes.values()) {
+                while (index < products.length && products[index].getId() < change.getId()) {
+                    merged.add(products[index++]);
+                }
+                if(index < products.length && products[index].getId().equals(change.getId())){
+                    change = newer(products[index++], change);
+                }
+                merged.add(change);
+            }
+            while (index < products.length) {
+                merged.add(products[index++]);
+            }
+            return new Catalog(epoch, version + 1, merged.toArray(new ProductDTO[0]));
+        }
+    }
+
+    private static final class CopyingList extends AbstractList<ProductDTO> implements RandomAccess {
+        private final List<ProductDTO> products;
+
+        CopyingList(List<ProductDTO> products) {
+            this.products = products;
+        }
+
+        @Override
+        public ProductDTO get(int index) {
+            return copy(products.get(index));
+        }
+
+        @Override
+        public int size() {
+            return products.size();
+        }
+    }
+}
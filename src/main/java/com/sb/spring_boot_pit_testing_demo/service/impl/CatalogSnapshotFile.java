@@ -0,0 +1,350 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.service.ProductChangeListener;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps a copy of the {@link CatalogSnapshot} on disk so a restarted instance can answer reads before the
+ * snapshot has been loaded from the database. The file is rewritten periodically and on shutdown whenever the
+ * catalog version changed; on startup it is memory-mapped and served until the live snapshot is ready, while a
+ * background pass compares it with the database and overlays every row that differs.
+ * <p>
+ * Layout, big-endian: a {@value #HEADER_SIZE} byte header ({@code magic, format, epoch, catalog version,
+ * count, index offset, CRC32C of everything after the header}), the records ({@code price, version, name
+ * length, UTF-8 name}) in id order, then the index of {@code (id, record offset)} pairs for binary search.
+ */
+@Slf4j
+@Component
+public class CatalogSnapshotFile implements ProductChangeListener {
+    private static final int MAGIC = 0x50435331;
+    private static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+
+    private final ProductBulkReader productBulkReader;
+    private final CatalogSnapshot catalogSnapshot;
+    private final ProductProperties.SnapshotFile properties;
+    private final boolean snapshotEnabled;
+    // rows saved or found stale since the file was mapped; they win over the file
+    private final ConcurrentSkipListMap<Long, ProductDTO> overlay = new ConcurrentSkipListMap<>();
+    private final AtomicLong overlayChanges = new AtomicLong();
+    private volatile MappedCatalog mapped;
+    private volatile Materialized materialized;
+    private ScheduledExecutorService writer;
+    // guarded by this
+    private String writtenTag;
+
+    public CatalogSnapshotFile(ProductBulkReader productBulkReader, CatalogSnapshot catalogSnapshot,
+                               ProductProperties productProperties) {
+        this.productBulkReader = productBulkReader;
+        this.catalogSnapshot = catalogSnapshot;
+        this.properties = productProperties.getSnapshotFile();
+        this.snapshotEnabled = productProperties.getSnapshot().isEnabled();
+    }
+
+    @PostConstruct
+    public void open() {
+        if(!properties.isEnabled()){
+            return;
+        }
+        if(!snapshotEnabled){
+            // the file is written from the snapshot and released once it loads; without one it would be served stale forever
+            throw new IllegalStateException("products.snapshot-file.enabled requires products.snapshot.enabled");
+        }
+        Path path = Path.of(properties.getPath());
+        if(Files.isRegularFile(path)){
+            try {
+                mapped = MappedCatalog.map(path);
+                log.info("serving {} products from catalog snapshot file {} until the snapshot is loaded", mapped.count, path);
+            } catch (IOException | RuntimeException e) {
+                log.warn("catalog snapshot file {} is unusable and will be rewritten", path, e);
+            }
+        }
+        long interval = Math.max(1, properties.getWriteInterval().toMillis());
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot-file");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::writeQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verify() {
+        if(mapped != null){
+            writer.execute(this::compareWithDatabase);
+        }
+    }
+
+    // null when no file is being served or the id is not in it
+    public ProductDTO find(long productId) {
+        MappedCatalog mapped = served();
+        if(mapped == null){
+            return null;
+        }
+        ProductDTO changed = overlay.get(productId);
+        return changed != null ? CatalogSnapshot.copy(changed) : mapped.find(productId);
+    }
+
+    // null when no file is being served
+    public List<ProductDTO> products() {
+        MappedCatalog mapped = served();
+        if(mapped == null){
+            return null;
+        }
+        // read before merging, so a save made meanwhile leaves the result marked as outdated
+        long changes = overlayChanges.get();
+        Materialized materialized = this.materialized;
+        if(materialized == null || materialized.changes != changes){
+            materialized = new Materialized(changes, Collections.unmodifiableList(mapped.merge(overlay)));
+            this.materialized = materialized;
+        }
+        return CatalogSnapshot.copying(materialized.products);
+    }
+
+    @Override
+    public void onProductSaved(ProductDTO product) {
+        if(served() != null){
+            overlay(new ProductDTO(product.getId(), product.getName(), product.getPrice(), product.getVersion()));
+        }
+    }
+
+    private void overlay(ProductDTO product) {
+        overlay.merge(product.getId(), product, CatalogSnapshot::newer);
+        overlayChanges.incrementAndGet();
+    }
+
+    // the file is only needed until the live snapshot has loaded; after that it is released
+    private MappedCatalog served() {
+        MappedCatalog mapped = this.mapped;
+        if(mapped != null && catalogSnapshot.current() != null){
+            this.mapped = null;
+            this.materialized = null;
+            overlay.clear();
+            return null;
+        }
+        return mapped;
+    }
+
+    private void compareWithDatabase() {
+        MappedCatalog mapped = this.mapped;
+        if(mapped == null){
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            int stale = 0;
+            try (Stream<ProductDTO> products = productBulkReader.streamAll()) {
+                Iterator<ProductDTO> iterator = products.iterator();
+                // stops early once the in-memory snapshot takes over and the file is no longer served
+                while (iterator.hasNext() && served() != null) {
+                    ProductDTO current = iterator.next();
+                    if(!current.equals(mapped.find(current.getId()))){
+                        overlay(current);
+                        stale++;
+                    }
+                }
+            }
+            log.info("catalog snapshot file checked against the database in {} ms, {} rows were stale",
+                    (System.nanoTime() - start) / 1_000_000, stale);
+        } catch (RuntimeException e) {
+            log.warn("catalog snapshot file could not be checked against the database", e);
+        }
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.warn("catalog snapshot file could not be written", e);
+        }
+    }
+
+    // writes beside the target and renames, so readers never see a half-written file
+    synchronized boolean write() throws IOException {
+        CatalogSnapshot.Catalog catalog = catalogSnapshot.current();
+        if(catalog == null || catalog.tag().equals(writtenTag)){
+            return false;
+        }
+        Path path = Path.of(properties.getPath()).toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        List<ProductDTO> products = catalog.sharedProducts();
+        long[] offsets = new long[products.size()];
+        CRC32C checksum = new CRC32C();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), checksum));
+            long offset = HEADER_SIZE;
+            for (int i = 0; i < products.size(); i++) {
+                ProductDTO product = products.get(i);
+                byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+                offsets[i] = offset;
+                output.writeLong(product.getPrice());
+                output.writeLong(product.getVersion() == null ? -1 : product.getVersion());
+                output.writeShort(name.length);
+                output.write(name);
+                offset += 2 * Long.BYTES + Short.BYTES + name.length;
+            }
+            long indexOffset = offset;
+            for (int i = 0; i < products.size(); i++) {
+                output.writeLong(products.get(i).getId());
+                output.writeLong(offsets[i]);
+            }
+            output.flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(catalog.epoch())
+                    .putLong(catalog.version())
+                    .putInt(products.size())
+                    .putInt(0)
+                    .putLong(indexOffset)
+                    .putLong(checksum.getValue())
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writtenTag = catalog.tag();
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if(writer != null){
+            writer.shutdownNow();
+            writeQuietly();
+        }
+    }
+
+    private record Materialized(long changes, List<ProductDTO> products) {
+    }
+
+    /**
+     * Read-only view of a validated snapshot file.
+     */
+    static final class MappedCatalog {
+        private final MappedByteBuffer buffer;
+        private final int count;
+        private final int indexOffset;
+
+        private MappedCatalog(MappedByteBuffer buffer, int count, int indexOffset) {
+            this.buffer = buffer;
+            this.count = count;
+            this.indexOffset = indexOffset;
+        }
+
+        static MappedCatalog map(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if(size < HEADER_SIZE || size > Integer.MAX_VALUE){
+                    throw new IOException("unexpected size " + size);
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION){
+                    throw new IOException("not a catalog snapshot file of format " + FORMAT_VERSION);
+                }
+                int count = buffer.getInt(24);
+                long indexOffset = buffer.getLong(32);
+                if(count < 0 || indexOffset < HEADER_SIZE || indexOffset + (long) count * INDEX_ENTRY_SIZE != size){
+                    throw new IOException("inconsistent header");
+                }
+                CRC32C checksum = new CRC32C();
+                checksum.update(buffer.slice(HEADER_SIZE, (int) size - HEADER_SIZE));
+                if(checksum.getValue() != buffer.getLong(40)){
+                    throw new IOException("checksum mismatch");
+                }
+                return new MappedCatalog(buffer, count, (int) indexOffset);
+            }
+        }
+
+        ProductDTO find(long productId) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long id = buffer.getLong(indexOffset + mid * INDEX_ENTRY_SIZE);
+                if(id < productId){
+                    low = mid + 1;
+                } else if(id > productId){
+                    high = mid - 1;
+                } else {
+                    return read(mid);
+                }
+            }
+            return null;
+        }
+
+        // the file in id order with the overlay merged in
+        List<ProductDTO> merge(Map<Long, ProductDTO> overlay) {
+            List<ProductDTO> products = new ArrayList<>(count + overlay.size());
+            Iterator<ProductDTO> changes = overlay.values().iterator();
+            ProductDTO change = changes.hasNext() ? changes.next() : null;
+            for (int i = 0; i < count; i++) {
+                long id = buffer.getLong(indexOffset + i * INDEX_ENTRY_SIZE);
+                while (change != null && change.getId() < id) {
+                    products.add(change);
+                    change = changes.hasNext() ? changes.next() : null;
+                }
+                if(change != null && change.getId() == id){
+                    products.add(change);
+                    change = changes.hasNext() ? changes.next() : null;
+                } else {
+                    products.add(read(i));
+                }
+            }
+            while (change != null) {
+                products.add(change);
+                change = changes.hasNext() ? changes.next() : null;
+            }
+            return products;
+        }
+
+        private ProductDTO read(int entry) {
+            int position = indexOffset + entry * INDEX_ENTRY_SIZE;
+            int offset = (int) buffer.getLong(position + Long.BYTES);
+            byte[] name = new byte[Short.toUnsignedInt(buffer.getShort(offset + 2 * Long.BYTES))];
+            buffer.get(offset + 2 * Long.BYTES + Short.BYTES, name);
+            long version = buffer.getLong(offset + Long.BYTES);
+            return new ProductDTO(buffer.getLong(position), new String(name, StandardCharsets.UTF_8),
+                    buffer.getLong(offset), version < 0 ? null : version);
+        }
+    }
+}
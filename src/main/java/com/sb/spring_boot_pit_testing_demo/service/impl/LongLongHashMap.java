@@ -0,0 +1,91 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+/**
+ * Open-addressing map from positive {@code long} keys to {@code long} values, two primitive arrays and nothing
+ * else. Not thread-safe: owners confine it to one thread or guard it with their own lock. Key {@code 0} is
+ * reserved as the empty marker; single entries are never removed, only the whole map is cleared.
+ */
+final class LongLongHashMap {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int threshold;
+
+    LongLongHashMap(int expectedSize) {
+        allocate(capacityFor(Math.max(16, expectedSize)));
+    }
+
+    long get(long key, long missing) {
+        int mask = keys.length - 1;
+        for (int index = LongObjectHashMap.indexFor(key, mask); ; index = (index + 1) & mask) {
+            if(keys[index] == key){
+                return values[index];
+            }
+            if(keys[index] == EMPTY){
+                return missing;
+            }
+        }
+    }
+
+    // returns the previous value, or missing when the key was absent
+    long put(long key, long value, long missing) {
+        if(key == EMPTY){
+            throw new IllegalArgumentException("key must not be " + EMPTY);
+        }
+        int mask = keys.length - 1;
+        int index = LongObjectHashMap.indexFor(key, mask);
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        if(keys[index] == key){
+            long previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if(++size > threshold){
+            resize();
+        }
+        return missing;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        allocate(capacityFor(16));
+        size = 0;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY){
+                int index = LongObjectHashMap.indexFor(oldKeys[i], mask);
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        threshold = (int) (capacity * LongObjectHashMap.LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / (double) LongObjectHashMap.LOAD_FACTOR);
+        return (int) Math.min(1 << 30, Long.highestOneBit(Math.max(2, needed - 1)) << 1);
+    }
+}
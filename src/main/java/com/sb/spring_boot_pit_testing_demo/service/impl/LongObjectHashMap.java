@@ -0,0 +1,121 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.BinaryOperator;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys (linear probing, no boxing, no nodes).
+ * Reads are lock-free; writers are serialized on the map. Entries are never removed, which keeps probing
+ * free of tombstones. Key {@code 0} is reserved as the empty marker, so only positive ids are accepted.
+ * <p>
+ * Per entry on a 64-bit JVM with compressed oops, not counting the value itself:
+ * {@code HashMap<Long, V>} needs a 32 byte node, a 16 byte {@code Long} and 1.3-2.7 table slots of 4 bytes,
+ * about 54-59 bytes; this map needs 1.7-3.3 slots of an 8 byte key and a 4 byte reference, about 20-40 bytes.
+ * At a million entries {@code LongObjectHashMapBenchmark} measured roughly 64 against 25 bytes.
+ */
+public final class LongObjectHashMap<V> {
+    static final float LOAD_FACTOR = 0.6f;
+    private static final long EMPTY = 0L;
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private volatile Table table;
+    private int size;
+
+    public LongObjectHashMap(int expectedSize) {
+        this.table = new Table(capacityFor(Math.max(16, expectedSize)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table table = this.table;
+        int mask = table.keys.length - 1;
+        for (int index = indexFor(key, mask); ; index = (index + 1) & mask) {
+            long stored = (long) KEYS.getAcquire(table.keys, index);
+            if(stored == key){
+                return (V) VALUES.getAcquire(table.values, index);
+            }
+            if(stored == EMPTY){
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Stores {@code value}, or when the key is present, whichever of the two {@code resolver} returns.
+     * The value is published before the key, so a reader that finds the key always finds its value.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V merge(long key, V value, BinaryOperator<V> resolver) {
+        if(key == EMPTY){
+            throw new IllegalArgumentException("key must not be " + EMPTY);
+        }
+        Table table = this.table;
+        int mask = table.keys.length - 1;
+        int index = indexFor(key, mask);
+        while (true) {
+            long stored = table.keys[index];
+            if(stored == key){
+                V merged = resolver.apply((V) table.values[index], value);
+                VALUES.setRelease(table.values, index, merged);
+                return merged;
+            }
+            if(stored == EMPTY){
+                VALUES.setRelease(table.values, index, value);
+                KEYS.setRelease(table.keys, index, key);
+                if(++size > table.threshold){
+                    resize(table);
+                }
+                return value;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // builds the doubled table privately, then publishes it with one volatile write
+    private void resize(Table old) {
+        Table resized = new Table(old.keys.length * 2);
+        int mask = resized.keys.length - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            long key = old.keys[i];
+            if(key != EMPTY){
+                int index = indexFor(key, mask);
+                while (resized.keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                resized.keys[index] = key;
+                resized.values[index] = old.values[i];
+            }
+        }
+        this.table = resized;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR);
+        return (int) Math.min(1 << 30, Long.highestOneBit(Math.max(2, needed - 1)) << 1);
+    }
+
+    static int indexFor(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int threshold;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.threshold = (int) (capacity * LOAD_FACTOR);
+        }
+    }
+}
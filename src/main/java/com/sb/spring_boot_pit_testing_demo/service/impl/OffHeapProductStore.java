@@ -0,0 +1,327 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.service.ProductChangeListener;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Copy of the catalog kept outside the Java heap, for catalogs too large to hold as {@link ProductDTO}s.
+ * Records ({@code id, price, version, name}) are appended to 64 MB direct buffers, and an open-addressing
+ * index of {@code (id, address)} slots lives in a direct buffer as well, so the heap holds a handful of
+ * buffer objects whatever the row count. A DTO is materialized only when a record is read.
+ * <p>
+ * Records are never changed once written; a save appends a new record and repoints the index slot with a
+ * release write, so reads need no lock. Replaced records stay in place as dead bytes until they make up half
+ * of the written bytes and at least a chunk; then the live records are copied into fresh chunks under a new
+ * index, and the old chunks are freed once no reader still holds the old index.
+ * <p>
+ * A failed load discards everything written so far and is retried with backoff.
+ */
+@Slf4j
+@Component
+public class OffHeapProductStore implements ProductChangeListener {
+    private static final int CHUNK_SIZE = 1 << 26;
+    private static final double COMPACT_DEAD_FRACTION = 0.5;
+    // id, price, version, name length
+    private static final int HEADER_SIZE = 3 * Long.BYTES + Short.BYTES;
+    private static final int SLOT_SIZE = 2 * Long.BYTES;
+    // keeps slot byte offsets inside an int
+    private static final int MAX_SLOTS = 1 << 26;
+    private static final int MIN_SLOTS = 1 << 12;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ProductRepository productRepository;
+    private final ProductBulkReader productBulkReader;
+    private final ProductProperties.OffHeap properties;
+    private final int chunkSize;
+    private volatile Index index;
+    private volatile boolean ready;
+    // guarded by this
+    private int size;
+    private long writeAddress;
+    private long deadBytes;
+
+    @Autowired
+    public OffHeapProductStore(ProductRepository productRepository, ProductBulkReader productBulkReader, ProductProperties productProperties) {
+        this(productRepository, productBulkReader, productProperties, CHUNK_SIZE);
+    }
+
+    OffHeapProductStore(ProductRepository productRepository, ProductBulkReader productBulkReader, ProductProperties productProperties,
+                        int chunkSize) {
+        this.productRepository = productRepository;
+        this.productBulkReader = productBulkReader;
+        this.properties = productProperties.getOffHeap();
+        this.chunkSize = chunkSize;
+        if(properties.isEnabled()){
+            this.index = new Index(MIN_SLOTS);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(properties.isEnabled()){
+            Thread loader = new Thread(this::loadWithRetry, "off-heap-store-load");
+            loader.setDaemon(true);
+            loader.start();
+        }
+    }
+
+    private void loadWithRetry() {
+        for (int failedLoads = 0; !load(); failedLoads++) {
+            Duration delay = CatalogSnapshot.retryDelay(failedLoads);
+            log.warn("retrying the off-heap product store load in {}", delay);
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // true once the store is ready
+    boolean load() {
+        try {
+            long start = System.nanoTime();
+            reserve(productRepository.count());
+            try (Stream<ProductDTO> products = productBulkReader.streamAll()) {
+                products.forEach(product -> put(product.getId(), product.getName(), product.getPrice(), product.getVersion()));
+            }
+            ready = true;
+            log.info("off-heap product store loaded {} products into {} MB in {} ms",
+                    count(), offHeapBytes() >> 20, (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (RuntimeException e) {
+            reset();
+            log.warn("off-heap product store could not be loaded, reads stay on the database", e);
+            return false;
+        }
+    }
+
+    // drops the partly loaded records and the saves written among them; the next scan reads both again
+    private synchronized void reset() {
+        index = new Index(MIN_SLOTS);
+        size = 0;
+        writeAddress = 0;
+        deadBytes = 0;
+    }
+
+    // empty while the store is loading or when the id is unknown to it
+    public Optional<ProductDTO> findById(long productId) {
+        if(!ready){
+            return Optional.empty();
+        }
+        // the address is only meaningful in the chunks of the index it was found in
+        Index index = this.index;
+        long address = addressOf(index, productId);
+        return address < 0 ? Optional.empty() : Optional.of(read(index.chunks, address));
+    }
+
+    public synchronized int count() {
+        return size;
+    }
+
+    // direct memory held by records and index, including dead records
+    public synchronized long offHeapBytes() {
+        Index index = this.index;
+        return index == null ? 0 : (long) index.chunks.length * chunkSize + (long) (index.mask + 1) * SLOT_SIZE;
+    }
+
+    public synchronized long deadBytes() {
+        return deadBytes;
+    }
+
+    @Override
+    public void onProductSaved(ProductDTO product) {
+        if(index != null){
+            put(product.getId(), product.getName(), product.getPrice(), product.getVersion());
+        }
+    }
+
+    // grows the index once up front instead of doubling its way up during the load
+    synchronized void reserve(long expectedSize) {
+        int slots = slotsFor(expectedSize);
+        if(slots > index.mask + 1){
+            resize(slots);
+        }
+    }
+
+    synchronized void put(long productId, String name, long price, Long version) {
+        if(productId <= 0){
+            throw new IllegalArgumentException("productId must be positive");
+        }
+        long storedVersion = version == null ? -1 : version;
+        Index index = this.index;
+        int slot = LongObjectHashMap.indexFor(productId, index.mask);
+        long key;
+        while ((key = index.slots.getLong(slot * SLOT_SIZE)) != 0 && key != productId) {
+            slot = (slot + 1) & index.mask;
+        }
+        if(key == productId){
+            long existing = index.slots.getLong(slot * SLOT_SIZE + Long.BYTES);
+            ByteBuffer chunk = chunk(index.chunks, existing);
+            long existingVersion = chunk.getLong(offset(existing) + 2 * Long.BYTES);
+            // listeners can be notified out of commit order, so an older version never replaces a newer one
+            if(storedVersion >= 0 && existingVersion >= 0 && storedVersion < existingVersion){
+                return;
+            }
+            deadBytes += recordSize(chunk, offset(existing));
+        }
+        long address = append(index, productId, name, price, storedVersion);
+        LONGS.setRelease(index.slots, slot * SLOT_SIZE + Long.BYTES, address);
+        if(key != productId){
+            LONGS.setRelease(index.slots, slot * SLOT_SIZE, productId);
+            if(++size > index.threshold){
+                resize((index.mask + 1) * 2);
+            }
+        }
+        if(deadBytes >= chunkSize && deadBytes > writeAddress * COMPACT_DEAD_FRACTION){
+            compact();
+        }
+    }
+
+    private long append(Index index, long productId, String name, long price, long version) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if(nameBytes.length > 0xFFFF){
+            throw new IllegalArgumentException("name is too long for the off-heap store");
+        }
+        long address = allocate(index, HEADER_SIZE + nameBytes.length);
+        int offset = offset(address);
+        chunk(index.chunks, address).putLong(offset, productId)
+                .putLong(offset + Long.BYTES, price)
+                .putLong(offset + 2 * Long.BYTES, version)
+                .putShort(offset + 3 * Long.BYTES, (short) nameBytes.length)
+                .put(offset + HEADER_SIZE, nameBytes);
+        return address;
+    }
+
+    private long allocate(Index index, int recordSize) {
+        ByteBuffer[] chunks = index.chunks;
+        if(writeAddress + recordSize > (long) chunks.length * chunkSize){
+            // records never straddle chunks; the tail of the previous chunk is left unused
+            ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.nativeOrder());
+            writeAddress = (long) chunks.length * chunkSize;
+            index.chunks = grown;
+        }
+        long address = writeAddress;
+        writeAddress += recordSize;
+        return address;
+    }
+
+    // copies every live record into fresh chunks behind an index with the same slot layout, then publishes it
+    private void compact() {
+        Index old = this.index;
+        Index compacted = new Index(old.mask + 1);
+        long before = writeAddress;
+        writeAddress = 0;
+        for (int slot = 0; slot <= old.mask; slot++) {
+            long key = old.slots.getLong(slot * SLOT_SIZE);
+            if(key != 0){
+                long from = old.slots.getLong(slot * SLOT_SIZE + Long.BYTES);
+                ByteBuffer source = chunk(old.chunks, from);
+                int length = recordSize(source, offset(from));
+                long to = allocate(compacted, length);
+                chunk(compacted.chunks, to).put(offset(to), source, offset(from), length);
+                compacted.slots.putLong(slot * SLOT_SIZE, key);
+                compacted.slots.putLong(slot * SLOT_SIZE + Long.BYTES, to);
+            }
+        }
+        deadBytes = 0;
+        this.index = compacted;
+        log.info("off-heap product store compacted from {} MB to {} MB", before >> 20, writeAddress >> 20);
+    }
+
+    private long addressOf(Index index, long productId) {
+        for (int slot = LongObjectHashMap.indexFor(productId, index.mask); ; slot = (slot + 1) & index.mask) {
+            long key = (long) LONGS.getAcquire(index.slots, slot * SLOT_SIZE);
+            if(key == productId){
+                return (long) LONGS.getAcquire(index.slots, slot * SLOT_SIZE + Long.BYTES);
+            }
+            if(key == 0){
+                return -1;
+            }
+        }
+    }
+
+    private ProductDTO read(ByteBuffer[] chunks, long address) {
+        ByteBuffer chunk = chunk(chunks, address);
+        int offset = offset(address);
+        byte[] name = new byte[Short.toUnsignedInt(chunk.getShort(offset + 3 * Long.BYTES))];
+        chunk.get(offset + HEADER_SIZE, name);
+        long version = chunk.getLong(offset + 2 * Long.BYTES);
+        return new ProductDTO(chunk.getLong(offset), new String(name, StandardCharsets.UTF_8),
+                chunk.getLong(offset + Long.BYTES), version < 0 ? null : version);
+    }
+
+    private ByteBuffer chunk(ByteBuffer[] chunks, long address) {
+        return chunks[(int) (address / chunkSize)];
+    }
+
+    private int offset(long address) {
+        return (int) (address % chunkSize);
+    }
+
+    private static int recordSize(ByteBuffer chunk, int offset) {
+        return HEADER_SIZE + Short.toUnsignedInt(chunk.getShort(offset + 3 * Long.BYTES));
+    }
+
+    // fills the new index privately, then publishes it with one volatile write
+    private void resize(int slots) {
+        if(slots > MAX_SLOTS){
+            throw new IllegalStateException("off-heap product index is full at " + size + " products");
+        }
+        Index old = this.index;
+        Index resized = new Index(slots);
+        resized.chunks = old.chunks;
+        for (int slot = 0; slot <= old.mask; slot++) {
+            long key = old.slots.getLong(slot * SLOT_SIZE);
+            if(key != 0){
+                int target = LongObjectHashMap.indexFor(key, resized.mask);
+                while (resized.slots.getLong(target * SLOT_SIZE) != 0) {
+                    target = (target + 1) & resized.mask;
+                }
+                resized.slots.putLong(target * SLOT_SIZE, key);
+                resized.slots.putLong(target * SLOT_SIZE + Long.BYTES, old.slots.getLong(slot * SLOT_SIZE + Long.BYTES));
+            }
+        }
+        this.index = resized;
+    }
+
+    private static int slotsFor(long expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / (double) LongObjectHashMap.LOAD_FACTOR);
+        return (int) Math.min(MAX_SLOTS, Math.max(MIN_SLOTS, Long.highestOneBit(Math.max(1, needed - 1)) << 1));
+    }
+
+    private static final class Index {
+        final ByteBuffer slots;
+        final int mask;
+        final int threshold;
+        // grown under the store's lock; read by lookups after the slot they found
+        volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+        Index(int slotCount) {
+            // acquire and release access needs 8 byte aligned slots
+            this.slots = ByteBuffer.allocateDirect(slotCount * SLOT_SIZE + Long.BYTES).alignedSlice(Long.BYTES).order(ByteOrder.nativeOrder());
+            this.mask = slotCount - 1;
+            this.threshold = (int) (slotCount * LongObjectHashMap.LOAD_FACTOR);
+        }
+    }
+}
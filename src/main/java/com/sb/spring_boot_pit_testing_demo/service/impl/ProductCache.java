@@ -0,0 +1,70 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.service.ProductChangeListener;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductCacheStats;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache for single product lookups. Caffeine's W-TinyLFU policy only admits
+ * a new entry when it is requested more often than the one it would evict, so a scan over cold ids
+ * cannot flush the hot SKUs.
+ */
+@Component
+public class ProductCache implements ProductChangeListener {
+    private final Cache<Long, ProductDTO> cache;
+
+    public ProductCache(ProductProperties productProperties) {
+        ProductProperties.Cache properties = productProperties.getCache();
+        if(properties.isEnabled()){
+            Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                    .maximumSize(properties.getMaximumSize())
+                    .recordStats();
+            if(!properties.getTimeToLive().isZero()){
+                builder.expireAfterWrite(properties.getTimeToLive());
+            }
+            this.cache = builder.build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    // failed loads (including NotFoundException) propagate to the caller and are not cached
+    public ProductDTO get(Long productId, Function<Long, ProductDTO> loader) {
+        if(cache == null){
+            return loader.apply(productId);
+        }
+        return cache.get(productId, loader);
+    }
+
+    // invalidate rather than put: a put racing with another write could leave the older value behind
+    @Override
+    public void onProductSaved(ProductDTO product) {
+        if(cache != null){
+            cache.invalidate(product.getId());
+        }
+    }
+
+    public ProductCacheStats stats() {
+        if(cache == null){
+            return ProductCacheStats.builder().enabled(false).build();
+        }
+        CacheStats stats = cache.stats();
+        return ProductCacheStats.builder()
+                .enabled(true)
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .loadCount(stats.loadCount())
+                .averageLoadMillis(stats.averageLoadPenalty() / 1_000_000.0)
+                .build();
+    }
+}
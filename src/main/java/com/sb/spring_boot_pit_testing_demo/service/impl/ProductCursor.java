@@ -0,0 +1,41 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.exception.InvalidValueException;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions as opaque, url-safe cursors so clients never depend on the sort key layout.
+ */
+final class ProductCursor {
+
+    private ProductCursor() {
+    }
+
+    static String encode(long... keys) {
+        ByteBuffer buffer = ByteBuffer.allocate(keys.length * Long.BYTES);
+        for (long key : keys) {
+            buffer.putLong(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    static long[] decode(String cursor, int keyCount, String field) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidValueException(field);
+        }
+        if(bytes.length != keyCount * Long.BYTES){
+            throw new InvalidValueException(field);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] keys = new long[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = buffer.getLong();
+        }
+        return keys;
+    }
+}
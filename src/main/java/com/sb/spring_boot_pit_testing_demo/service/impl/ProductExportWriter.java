@@ -0,0 +1,89 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ExportFormat;
+import com.sb.spring_boot_pit_testing_demo.service.dto.Prices;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes one product at a time to the export stream; nothing is retained between rows.
+ * The response stream is only flushed, never closed, so the servlet container keeps ownership of it.
+ */
+abstract class ProductExportWriter {
+
+    static ProductExportWriter create(ExportFormat format, ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonWriter(objectMapper, outputStream);
+            case CSV -> new CsvWriter(outputStream);
+        };
+    }
+
+    abstract void write(ProductDTO product) throws IOException;
+
+    abstract void finish() throws IOException;
+
+    private static final class NdjsonWriter extends ProductExportWriter {
+        private final SequenceWriter sequenceWriter;
+
+        private NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+            this.sequenceWriter = objectMapper.writerFor(ProductDTO.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(outputStream);
+        }
+
+        @Override
+        void write(ProductDTO product) throws IOException {
+            sequenceWriter.write(product);
+        }
+
+        @Override
+        void finish() throws IOException {
+            sequenceWriter.flush();
+        }
+    }
+
+    private static final class CsvWriter extends ProductExportWriter {
+        private final Writer writer;
+
+        private CsvWriter(OutputStream outputStream) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write("id,name,price\n");
+        }
+
+        @Override
+        void write(ProductDTO product) throws IOException {
+            writer.write(String.valueOf(product.getId()));
+            writer.write(',');
+            writeText(product.getName());
+            writer.write(',');
+            writer.write(Prices.format(product.getPrice()));
+            writer.write('\n');
+        }
+
+        private void writeText(String value) throws IOException {
+            if(value == null){
+                return;
+            }
+            if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0){
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+    }
+}
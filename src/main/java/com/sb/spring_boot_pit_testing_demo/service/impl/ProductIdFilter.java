@@ -0,0 +1,160 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.service.ProductChangeListener;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductIdFilterStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+
+/**
+ * Bloom filter over existing product ids. A negative answer is definite, so unknown ids can be
+ * rejected without a query; a positive answer only means the id might exist. The filter is built off the
+ * startup thread and the build is retried with backoff; until it is ready every id passes.
+ */
+@Slf4j
+@Component
+public class ProductIdFilter implements ProductChangeListener {
+    private final ProductRepository productRepository;
+    private final ProductBulkReader productBulkReader;
+    private final ProductProperties.IdFilter properties;
+    private final LongAdder definiteMisses = new LongAdder();
+    private volatile AtomicLongArray words;
+    private volatile long bitCount;
+    private volatile int hashFunctions;
+    private volatile boolean ready;
+
+    public ProductIdFilter(ProductRepository productRepository, ProductBulkReader productBulkReader, ProductProperties productProperties) {
+        this.productRepository = productRepository;
+        this.productBulkReader = productBulkReader;
+        this.properties = productProperties.getIdFilter();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(properties.isEnabled()){
+            Thread builder = new Thread(this::buildWithRetry, "product-id-filter-build");
+            builder.setDaemon(true);
+            builder.start();
+        }
+    }
+
+    private void buildWithRetry() {
+        for (int failedBuilds = 0; !build(); failedBuilds++) {
+            Duration delay = CatalogSnapshot.retryDelay(failedBuilds);
+            log.warn("retrying the product id filter build in {}", delay);
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // true once the filter is ready
+    boolean build() {
+        try {
+            long expected = Math.max(properties.getMinimumCapacity(), productRepository.count() * 2);
+            double fpp = properties.getFalsePositiveRate();
+            long bits = Math.max(64, (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+            // size first and publish before scanning, so writes that land during the scan are not lost
+            this.hashFunctions = Math.max(1, (int) Math.round((double) words * 64 / expected * Math.log(2)));
+            this.bitCount = (long) words * 64;
+            this.words = new AtomicLongArray(words);
+            try (LongStream ids = productBulkReader.streamAllIds()) {
+                ids.forEach(this::add);
+            }
+            this.ready = true;
+            log.info("product id filter ready: {} bits, {} hash functions", bitCount, hashFunctions);
+            return true;
+        } catch (RuntimeException e) {
+            // unknown ids keep going to the database; the next build scans every id again
+            this.words = null;
+            log.warn("product id filter could not be built, lookups stay unfiltered", e);
+            return false;
+        }
+    }
+
+    public boolean mightContain(long productId) {
+        if(!ready){
+            return true;
+        }
+        AtomicLongArray words = this.words;
+        long hash = mix(productId);
+        long increment = mix(hash) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(hash + i * increment, bitCount);
+            if((words.get((int) (bit >>> 6)) & (1L << bit)) == 0){
+                definiteMisses.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onProductSaved(ProductDTO product) {
+        add(product.getId());
+    }
+
+    private void add(long productId) {
+        AtomicLongArray words = this.words;
+        if(words == null){
+            return;
+        }
+        long hash = mix(productId);
+        long increment = mix(hash) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(hash + i * increment, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                word = words.get(index);
+            }
+        }
+    }
+
+    public ProductIdFilterStats stats() {
+        AtomicLongArray words = this.words;
+        if(words == null){
+            return ProductIdFilterStats.builder().enabled(properties.isEnabled()).build();
+        }
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        double fillRatio = (double) set / bitCount;
+        return ProductIdFilterStats.builder()
+                .enabled(true)
+                .ready(ready)
+                .bits(bitCount)
+                .hashFunctions(hashFunctions)
+                .memoryBytes((long) words.length() * Long.BYTES)
+                .fillRatio(fillRatio)
+                .expectedFalsePositiveRate(Math.pow(fillRatio, hashFunctions))
+                .definiteMisses(definiteMisses.sum())
+                .build();
+    }
+
+    // murmur3 finalizer; sequential ids would otherwise cluster in the bit array
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
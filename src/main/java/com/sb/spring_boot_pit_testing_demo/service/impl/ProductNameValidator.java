@@ -0,0 +1,38 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+/**
+ * Accepts exactly what {@code hasText(name) && name.matches("^([0-9A-Za-z ]+)$")} accepts, using a
+ * lookup table instead of a regex so validating a name allocates nothing.
+ */
+public final class ProductNameValidator {
+    private static final boolean[] ALLOWED = new boolean[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            ALLOWED[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            ALLOWED[c] = true;
+            ALLOWED[c + ('a' - 'A')] = true;
+        }
+        ALLOWED[' '] = true;
+    }
+
+    private ProductNameValidator() {
+    }
+
+    public static boolean isValid(String name) {
+        if(name == null){
+            return false;
+        }
+        boolean hasText = false;
+        for (int i = 0, length = name.length(); i < length; i++) {
+            char c = name.charAt(i);
+            if(c >= ALLOWED.length || !ALLOWED[c]){
+                return false;
+            }
+            hasText |= c != ' ';
+        }
+        return hasText;
+    }
+}
@@ -0,0 +1,218 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.service.ProductChangeListener;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPriceStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Price aggregates over the whole catalog, maintained on every save instead of by scanning. The previous
+ * price of each id is kept in a primitive map so that an update moves the product between values rather
+ * than counting it twice. Quantiles come from a log-linear histogram: values below 64 minor units are exact,
+ * above that each power of two is split into 64 buckets, so a reported quantile is within 1/64 of the truth.
+ * <p>
+ * Reads return an immutable {@link ProductPriceStats} that is only rebuilt when a save changed something,
+ * which walks the fixed set of buckets and never the catalog. A failed load starts over from empty after a
+ * backoff; saves are only queued while a load is running.
+ */
+@Slf4j
+@Component
+public class ProductPriceStatistics implements ProductChangeListener {
+    private static final int SUB_BUCKETS = 64;
+    private static final int BUCKETS = (64 - 6) * SUB_BUCKETS;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99};
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private final ProductBulkReader productBulkReader;
+    private final ProductProperties.Stats properties;
+    // all guarded by this
+    private final LongLongHashMap prices = new LongLongHashMap(1024);
+    private final LongLongHashMap versions = new LongLongHashMap(1024);
+    // price -> number of products at that price, for exact min and max under updates
+    private final TreeMap<Long, Integer> distinctPrices = new TreeMap<>();
+    private final long[] histogram = new long[BUCKETS];
+    private final List<ProductDTO> pending = new ArrayList<>();
+    private long sum;
+    private boolean ready;
+    private boolean loading;
+    // cleared by every change; read without the lock
+    private volatile ProductPriceStats published;
+
+    public ProductPriceStatistics(ProductBulkReader productBulkReader, ProductProperties productProperties) {
+        this.productBulkReader = productBulkReader;
+        this.properties = productProperties.getStats();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(properties.isEnabled()){
+            Thread loader = new Thread(this::loadWithRetry, "product-price-stats");
+            loader.setDaemon(true);
+            loader.start();
+        }
+    }
+
+    private void loadWithRetry() {
+        for (int failedLoads = 0; !load(); failedLoads++) {
+            Duration delay = CatalogSnapshot.retryDelay(failedLoads);
+            log.warn("retrying the price statistics in {}", delay);
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // true once the statistics are ready
+    boolean load() {
+        synchronized (this) {
+            loading = true;
+        }
+        try {
+            long start = System.nanoTime();
+            try (Stream<ProductDTO> products = productBulkReader.streamAll()) {
+                products.forEach(product -> {
+                    synchronized (this) {
+                        record(product.getId(), product.getPrice(), product.getVersion());
+                    }
+                });
+            }
+            synchronized (this) {
+                // saves made during the scan; versions keep the replay from undoing newer rows
+                pending.forEach(product -> record(product.getId(), product.getPrice(), product.getVersion()));
+                pending.clear();
+                ready = true;
+                published = null;
+            }
+            log.info("price statistics computed over {} products in {} ms", prices.size(), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                // the next scan reads the queued rows from the database again
+                reset();
+            }
+            log.warn("price statistics could not be computed", e);
+            return false;
+        } finally {
+            synchronized (this) {
+                loading = false;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onProductSaved(ProductDTO product) {
+        if(!properties.isEnabled()){
+            return;
+        }
+        if(ready){
+            record(product.getId(), product.getPrice(), product.getVersion());
+        } else if(loading){
+            // a save made before the load started is read by its scan instead
+            pending.add(new ProductDTO(product.getId(), product.getName(), product.getPrice(), product.getVersion()));
+        }
+    }
+
+    public ProductPriceStats stats() {
+        ProductPriceStats stats = published;
+        if(stats != null){
+            return stats;
+        }
+        synchronized (this) {
+            if(published == null){
+                published = compute();
+            }
+            return published;
+        }
+    }
+
+    // caller holds the lock
+    private void reset() {
+        prices.clear();
+        versions.clear();
+        distinctPrices.clear();
+        Arrays.fill(histogram, 0);
+        pending.clear();
+        sum = 0;
+        published = null;
+    }
+
+    // caller holds the lock
+    private void record(long productId, long price, Long version) {
+        long storedVersion = versions.get(productId, MISSING);
+        if(version != null && storedVersion != MISSING && version < storedVersion){
+            return;
+        }
+        versions.put(productId, version == null ? MISSING : version, MISSING);
+        long previous = prices.put(productId, price, MISSING);
+        if(previous == price){
+            return;
+        }
+        if(previous != MISSING){
+            sum -= previous;
+            histogram[bucket(previous)]--;
+            distinctPrices.computeIfPresent(previous, (value, count) -> count == 1 ? null : count - 1);
+        }
+        sum += price;
+        histogram[bucket(price)]++;
+        distinctPrices.merge(price, 1, Integer::sum);
+        published = null;
+    }
+
+    // caller holds the lock
+    private ProductPriceStats compute() {
+        long count = prices.size();
+        if(!ready || count == 0){
+            return new ProductPriceStats(ready, ready ? count : 0, 0, null, null, null, Map.of());
+        }
+        Map<String, Long> quantiles = new LinkedHashMap<>();
+        long seen = 0;
+        int next = 0;
+        for (int bucket = 0; bucket < BUCKETS && next < QUANTILES.length; bucket++) {
+            seen += histogram[bucket];
+            while (next < QUANTILES.length && seen >= Math.ceil(QUANTILES[next] * count)) {
+                quantiles.put("p" + Math.round(QUANTILES[next] * 100), midpoint(bucket));
+                next++;
+            }
+        }
+        long min = distinctPrices.firstKey();
+        long max = distinctPrices.lastKey();
+        // bucket midpoints can fall outside the actual range at the ends
+        quantiles.replaceAll((name, value) -> Math.max(min, Math.min(max, value)));
+        return new ProductPriceStats(true, count, sum, min, max, Math.round(sum / (double) count), quantiles);
+    }
+
+    static int bucket(long value) {
+        if(value < SUB_BUCKETS){
+            return (int) Math.max(0, value);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 6)) & (SUB_BUCKETS - 1);
+        return (exponent - 5) * SUB_BUCKETS + sub;
+    }
+
+    static long midpoint(int bucket) {
+        if(bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >> 1);
+    }
+}
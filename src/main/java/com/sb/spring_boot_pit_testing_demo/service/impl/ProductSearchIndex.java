@@ -0,0 +1,454 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.service.ProductChangeListener;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSearchHit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index from name tokens to product ids, scored with BM25. Each posting list is a delta + varint
+ * encoded run of ascending ids plus two small sorted arrays of ids added and removed since it was encoded;
+ * once those grow past an eighth of the list it is encoded again. Lists are immutable and replaced per term,
+ * so queries read without locks while saves are applied one at a time.
+ * <p>
+ * The initial build streams the table in blocks of {@value #BUILD_BLOCK} rows, tokenizing each block in
+ * parallel and appending its ids to the term lists, so no more than one block of rows is held at a time; the
+ * lists are encoded in parallel at the end. A failed build is retried with backoff; saves are only queued
+ * while a build is running.
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex implements ProductChangeListener {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    static final int BUILD_BLOCK = 10_000;
+    static final Comparator<ProductSearchHit> ORDER = Comparator.comparingDouble(ProductSearchHit::getScore).reversed()
+            .thenComparing(ProductSearchHit::getId);
+
+    private final ProductBulkReader productBulkReader;
+    private final ProductProperties.Search properties;
+    private final Map<String, Postings> postings = new ConcurrentHashMap<>();
+    private final LongObjectHashMap<Document> documents = new LongObjectHashMap<>(1024);
+    private final Queue<ProductDTO> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean ready;
+    private volatile boolean building;
+    // written under the lock, read by queries for the length normalization
+    private volatile long documentCount;
+    private volatile long tokenCount;
+
+    public ProductSearchIndex(ProductBulkReader productBulkReader, ProductProperties productProperties) {
+        this.productBulkReader = productBulkReader;
+        this.properties = productProperties.getSearch();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(properties.isEnabled()){
+            Thread builder = new Thread(this::buildWithRetry, "product-search-build");
+            builder.setDaemon(true);
+            builder.start();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void onProductSaved(ProductDTO product) {
+        if(!properties.isEnabled()){
+            return;
+        }
+        ProductDTO copy = new ProductDTO(product.getId(), product.getName(), product.getPrice(), product.getVersion());
+        synchronized (this) {
+            if(ready){
+                apply(copy);
+            } else if(building){
+                // a save made before the build started is read by its scan instead
+                pending.add(copy);
+            }
+        }
+    }
+
+    private void buildWithRetry() {
+        for (int failedBuilds = 0; !build(); failedBuilds++) {
+            Duration delay = CatalogSnapshot.retryDelay(failedBuilds);
+            log.warn("retrying the search index build in {}", delay);
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // true once the index is ready
+    boolean build() {
+        building = true;
+        try {
+            long start = System.nanoTime();
+            Build build = new Build();
+            try (Stream<ProductDTO> rows = productBulkReader.streamAll()) {
+                rows.forEach(build::add);
+            }
+            build.flush();
+            build.terms.entrySet().parallelStream()
+                    .forEach(entry -> postings.put(entry.getKey(), Postings.of(entry.getValue().toArray())));
+            synchronized (this) {
+                documentCount = build.count;
+                tokenCount = build.tokenTotal;
+                ready = true;
+                // saves made during the build; versions keep the replay from undoing newer rows
+                ProductDTO change;
+                while ((change = pending.poll()) != null) {
+                    apply(change);
+                }
+            }
+            log.info("search index built over {} products and {} terms in {} ms", documentCount, postings.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                // the next scan reads the queued rows from the database again
+                pending.clear();
+                postings.clear();
+            }
+            log.warn("search index could not be built, searches stay on the database", e);
+            return false;
+        } finally {
+            building = false;
+        }
+    }
+
+    /**
+     * Term lists of one build, filled a block of rows at a time. Rows arrive in id order, so appending keeps
+     * every list ascending. Documents go straight into the index; a failed build leaves them for the next
+     * scan to overwrite, as products are never deleted.
+     */
+    private final class Build {
+        private final Map<String, LongList> terms = new HashMap<>();
+        private final List<ProductDTO> block = new ArrayList<>(BUILD_BLOCK);
+        private long count;
+        private long tokenTotal;
+
+        void add(ProductDTO product) {
+            block.add(product);
+            if(block.size() == BUILD_BLOCK){
+                flush();
+            }
+        }
+
+        void flush() {
+            String[][] tokens = new String[block.size()][];
+            IntStream.range(0, block.size()).parallel().forEach(i -> tokens[i] = tokenize(block.get(i).getName()));
+            for (int i = 0; i < tokens.length; i++) {
+                ProductDTO product = block.get(i);
+                for (String term : distinct(tokens[i])) {
+                    terms.computeIfAbsent(term, key -> new LongList()).add(product.getId());
+                }
+                documents.merge(product.getId(), new Document(product.getName(), tokens[i], product.getVersion()), (a, b) -> b);
+                tokenTotal += tokens[i].length;
+            }
+            count += tokens.length;
+            block.clear();
+        }
+    }
+
+    // caller holds the lock
+    private void apply(ProductDTO product) {
+        long productId = product.getId();
+        Document previous = documents.get(productId);
+        if(previous != null && previous.version != null && product.getVersion() != null
+                && product.getVersion() < previous.version){
+            return;
+        }
+        String[] tokens = tokenize(product.getName());
+        LinkedHashSet<String> previousTerms = distinct(previous == null ? new String[0] : previous.tokens);
+        LinkedHashSet<String> terms = distinct(tokens);
+        for (String term : previousTerms) {
+            if(!terms.contains(term)){
+                postings.computeIfPresent(term, (key, list) -> list.without(productId));
+            }
+        }
+        for (String term : terms) {
+            if(!previousTerms.contains(term)){
+                postings.merge(term, Postings.of(new long[]{productId}), (list, single) -> list.with(productId));
+            }
+        }
+        documents.merge(productId, new Document(product.getName(), tokens, product.getVersion()), (a, b) -> b);
+        if(previous == null){
+            documentCount++;
+            tokenCount += tokens.length;
+        } else {
+            tokenCount += tokens.length - previous.tokens.length;
+        }
+    }
+
+    /**
+     * Products matching every term of {@code query}, best first, starting after the given position.
+     * At most {@code limit} hits are returned; {@code total} counts all matches.
+     */
+    Matches search(String query, double afterScore, long afterId, int limit) {
+        LinkedHashSet<String> terms = distinct(tokenize(query));
+        List<long[]> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if(list == null){
+                return new Matches(List.of(), 0);
+            }
+            lists.add(list.decode());
+        }
+        lists.sort(Comparator.comparingInt(ids -> ids.length));
+        long[] matches = lists.get(0);
+        for (long[] ids : lists.subList(1, lists.size())) {
+            matches = intersect(matches, ids);
+        }
+        double averageLength = Math.max(1, tokenCount / (double) Math.max(1, documentCount));
+        double[] idf = new double[terms.size()];
+        int t = 0;
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            int frequency = list == null ? 0 : list.size();
+            idf[t++] = Math.log(1 + (documentCount - frequency + 0.5) / (frequency + 0.5));
+        }
+        // worst hit at the head, so the queue keeps the best limit hits seen so far
+        PriorityQueue<ProductSearchHit> best = new PriorityQueue<>(limit + 1, ORDER.reversed());
+        for (long productId : matches) {
+            Document document = documents.get(productId);
+            if(document == null){
+                continue;
+            }
+            double score = score(document, terms, idf, averageLength);
+            if(score > afterScore || (score == afterScore && productId <= afterId)){
+                continue;
+            }
+            best.add(new ProductSearchHit(productId, document.name, score));
+            if(best.size() > limit){
+                best.poll();
+            }
+        }
+        List<ProductSearchHit> hits = new ArrayList<>(best);
+        hits.sort(ORDER);
+        return new Matches(hits, matches.length);
+    }
+
+    private static double score(Document document, LinkedHashSet<String> terms, double[] idf, double averageLength) {
+        double score = 0;
+        int t = 0;
+        for (String term : terms) {
+            int frequency = 0;
+            for (String token : document.tokens) {
+                if(token.equals(term)){
+                    frequency++;
+                }
+            }
+            double norm = K1 * (1 - B + B * document.tokens.length / averageLength);
+            score += idf[t++] * frequency * (K1 + 1) / (frequency + norm);
+        }
+        return score;
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if(a[i] < b[j]){
+                i++;
+            } else if(a[i] > b[j]){
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // runs of letters and digits, lower-cased
+    static String[] tokenize(String text) {
+        List<String> tokens = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if(wordChar && start < 0){
+                start = i;
+            } else if(!wordChar && start >= 0){
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static LinkedHashSet<String> distinct(String[] tokens) {
+        return new LinkedHashSet<>(Arrays.asList(tokens));
+    }
+
+    record Matches(List<ProductSearchHit> hits, long total) {
+    }
+
+    private record Document(String name, String[] tokens, Long version) {
+    }
+
+    /**
+     * Immutable posting list: the encoded ids plus sorted ids added to and removed from them since.
+     */
+    static final class Postings {
+        private static final long[] NONE = new long[0];
+        private final byte[] encoded;
+        private final int encodedSize;
+        private final long[] added;
+        private final long[] removed;
+
+        private Postings(byte[] encoded, int encodedSize, long[] added, long[] removed) {
+            this.encoded = encoded;
+            this.encodedSize = encodedSize;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        static Postings of(long[] ascendingIds) {
+            byte[] buffer = new byte[Math.max(16, ascendingIds.length * 2)];
+            int position = 0;
+            long previous = 0;
+            for (long id : ascendingIds) {
+                if(buffer.length - position < 10){
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                long delta = id - previous;
+                previous = id;
+                while ((delta & ~0x7FL) != 0) {
+                    buffer[position++] = (byte) ((delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                buffer[position++] = (byte) delta;
+            }
+            return new Postings(Arrays.copyOf(buffer, position), ascendingIds.length, NONE, NONE);
+        }
+
+        int size() {
+            return encodedSize + added.length - removed.length;
+        }
+
+        int encodedBytes() {
+            return encoded.length;
+        }
+
+        long[] decode() {
+            long[] ids = new long[size()];
+            int size = 0;
+            int nextAdded = 0;
+            int nextRemoved = 0;
+            int position = 0;
+            long id = 0;
+            for (int i = 0; i < encodedSize; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte current;
+                do {
+                    current = encoded[position++];
+                    delta |= (long) (current & 0x7F) << shift;
+                    shift += 7;
+                } while (current < 0);
+                id += delta;
+                while (nextAdded < added.length && added[nextAdded] < id) {
+                    ids[size++] = added[nextAdded++];
+                }
+                if(nextRemoved < removed.length && removed[nextRemoved] == id){
+                    nextRemoved++;
+                } else {
+                    ids[size++] = id;
+                }
+            }
+            while (nextAdded < added.length) {
+                ids[size++] = added[nextAdded++];
+            }
+            return ids;
+        }
+
+        // null once the list is empty, which drops the term
+        Postings with(long id) {
+            int index = Arrays.binarySearch(removed, id);
+            Postings next = index >= 0
+                    ? new Postings(encoded, encodedSize, added, remove(removed, index))
+                    : new Postings(encoded, encodedSize, insert(added, insertionPoint(added, id), id), removed);
+            return next.compacted();
+        }
+
+        Postings without(long id) {
+            int index = Arrays.binarySearch(added, id);
+            Postings next = index >= 0
+                    ? new Postings(encoded, encodedSize, remove(added, index), removed)
+                    : new Postings(encoded, encodedSize, added, insert(removed, insertionPoint(removed, id), id));
+            return next.size() == 0 ? null : next.compacted();
+        }
+
+        private Postings compacted() {
+            if(added.length + removed.length <= Math.max(32, encodedSize / 8)){
+                return this;
+            }
+            return of(decode());
+        }
+
+        private static int insertionPoint(long[] ids, long id) {
+            int index = Arrays.binarySearch(ids, id);
+            return index >= 0 ? index : -(index + 1);
+        }
+
+        private static long[] insert(long[] ids, int index, long id) {
+            long[] result = new long[ids.length + 1];
+            System.arraycopy(ids, 0, result, 0, index);
+            result[index] = id;
+            System.arraycopy(ids, index, result, index + 1, ids.length - index);
+            return result;
+        }
+
+        private static long[] remove(long[] ids, int index) {
+            long[] result = new long[ids.length - 1];
+            System.arraycopy(ids, 0, result, 0, index);
+            System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+            return result;
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if(size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
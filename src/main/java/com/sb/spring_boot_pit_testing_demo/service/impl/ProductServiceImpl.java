@@ -1,28 +1,109 @@
 package com.sb.spring_boot_pit_testing_demo.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
 import com.sb.spring_boot_pit_testing_demo.exception.InvalidValueException;
 import com.sb.spring_boot_pit_testing_demo.exception.NotFoundException;
+import com.sb.spring_boot_pit_testing_demo.exception.ServiceUnavailableException;
+import com.sb.spring_boot_pit_testing_demo.exception.VersionConflictException;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
 import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
 import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+import com.sb.spring_boot_pit_testing_demo.service.ProductChangeListener;
 import com.sb.spring_boot_pit_testing_demo.service.ProductService;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ExportFormat;
+import com.sb.spring_boot_pit_testing_demo.service.dto.Prices;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductBatchItemResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductBatchResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductCacheStats;
 import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductIdFilterStats;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductLookupResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPage;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPriceStats;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSearchHit;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSearchResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSuggestion;
+import com.sb.spring_boot_pit_testing_demo.service.dto.SerializedCatalog;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Pattern;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.springframework.util.CollectionUtils.isEmpty;
 import static org.springframework.util.StringUtils.hasText;
 
 @Service
 public class ProductServiceImpl implements ProductService {
-    private final ProductRepository productRepository;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_LOOKUP_IDS = 10000;
+    // keeps each IN list well inside what the database plans efficiently
+    static final int LOOKUP_CHUNK_SIZE = 500;
+    static final int MAX_SUGGESTIONS = 100;
+    static final int MAX_SEARCH_PAGE_SIZE = 100;
+    static final int MAX_TOP_PRODUCTS = 1000;
+    private static final Comparator<ProductDTO> CHEAPEST_FIRST = Comparator.comparingLong(ProductDTO::getPrice)
+            .thenComparing(ProductDTO::getId);
 
-    private Pattern productName = Pattern.compile("^([0-9A-Za-z ]+)$");
+    private final ProductRepository productRepository;
+    private final ProductBulkReader productBulkReader;
+    private final ObjectMapper objectMapper;
+    private final ProductProperties productProperties;
+    private final ProductWriteCoalescer productWriteCoalescer;
+    private final ProductCache productCache;
+    private final ProductIdFilter productIdFilter;
+    private final CatalogSnapshot catalogSnapshot;
+    private final OffHeapProductStore offHeapProductStore;
+    private final CatalogSnapshotFile catalogSnapshotFile;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductPriceStatistics productPriceStatistics;
+    private final List<ProductChangeListener> productChangeListeners;
+    private final SingleFlight<Long, ProductDTO> productLoads = new SingleFlight<>();
+    private final SingleFlight<Boolean, List<ProductDTO>> allProductLoads = new SingleFlight<>();
+    private final SingleFlight<Long, SerializedCatalog> catalogSerializations = new SingleFlight<>();
+    private volatile SerializedCatalog serializedCatalog;
+    // the top MAX_TOP_PRODUCTS per order for one catalog version; smaller limits are prefixes of it
+    private final Map<Boolean, TopProducts> topProducts = new ConcurrentHashMap<>();
 
-    public ProductServiceImpl(ProductRepository productRepository) {
+    public ProductServiceImpl(ProductRepository productRepository, ProductBulkReader productBulkReader, ObjectMapper objectMapper,
+                              ProductProperties productProperties, ProductWriteCoalescer productWriteCoalescer,
+                              ProductCache productCache, ProductIdFilter productIdFilter, CatalogSnapshot catalogSnapshot,
+                              OffHeapProductStore offHeapProductStore, CatalogSnapshotFile catalogSnapshotFile,
+                              ProductSuggestIndex productSuggestIndex, ProductSearchIndex productSearchIndex,
+                              ProductPriceStatistics productPriceStatistics, List<ProductChangeListener> productChangeListeners) {
         this.productRepository = productRepository;
+        this.productBulkReader = productBulkReader;
+        this.objectMapper = objectMapper;
+        this.productProperties = productProperties;
+        this.productWriteCoalescer = productWriteCoalescer;
+        this.productCache = productCache;
+        this.productIdFilter = productIdFilter;
+        this.catalogSnapshot = catalogSnapshot;
+        this.offHeapProductStore = offHeapProductStore;
+        this.catalogSnapshotFile = catalogSnapshotFile;
+        this.productSuggestIndex = productSuggestIndex;
+        this.productSearchIndex = productSearchIndex;
+        this.productPriceStatistics = productPriceStatistics;
+        this.productChangeListeners = productChangeListeners;
     }
 
     @Override
@@ -30,34 +111,410 @@ public class ProductServiceImpl implements ProductService {
         if(productId<=0){
             throw new InvalidValueException("id");
         }
-        Optional<Product> product = productRepository.findById(productId);
-        if(!product.isPresent()){
+        if(!productIdFilter.mightContain(productId)){
             throw new NotFoundException(productId.toString());
         }
-        return new ProductDTO(product.get());
+        ProductDTO product = findProduct(productId);
+        // only reads that found a product count towards suggestion ranking
+        productSuggestIndex.recordView(productId);
+        return product;
+    }
+
+    // the order is documented next to products.cache.* in application.properties; keep the two in step
+    private ProductDTO findProduct(Long productId) {
+        ProductDTO snapshotProduct = catalogSnapshot.find(productId);
+        if(snapshotProduct != null){
+            return snapshotProduct;
+        }
+        Optional<ProductDTO> storedProduct = offHeapProductStore.findById(productId);
+        if(storedProduct.isPresent()){
+            return storedProduct.get();
+        }
+        ProductDTO fileProduct = catalogSnapshotFile.find(productId);
+        if(fileProduct != null){
+            return fileProduct;
+        }
+        return productCache.get(productId, id -> productLoads.execute(id, () -> loadProduct(id)));
+    }
+
+    private ProductDTO loadProduct(Long productId) {
+        return productRepository.findDtoById(productId)
+                .orElseThrow(() -> new NotFoundException(productId.toString()));
+    }
+
+    @Override
+    public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+        if(!hasText(prefix)){
+            throw new InvalidValueException("prefix");
+        }
+        if(limit < 1 || limit > MAX_SUGGESTIONS){
+            throw new InvalidValueException("limit");
+        }
+        List<ProductSuggestion> suggestions = productSuggestIndex.suggest(prefix, limit);
+        if(suggestions != null){
+            return suggestions;
+        }
+        // unranked until the index is built
+        return productRepository.findByNameStartingWithIgnoreCaseOrderByNameAsc(prefix.stripLeading(), Limit.of(limit)).stream()
+                .map(product -> new ProductSuggestion(product.getId(), product.getName(), 0))
+                .toList();
+    }
+
+    @Override
+    public ProductSearchResult searchProducts(String query, String after, int limit) {
+        if(!hasText(query) || ProductSearchIndex.tokenize(query).length == 0){
+            throw new InvalidValueException("q");
+        }
+        if(limit < 1 || limit > MAX_SEARCH_PAGE_SIZE){
+            throw new InvalidValueException("limit");
+        }
+        if(!productSearchIndex.isReady()){
+            throw new ServiceUnavailableException("search");
+        }
+        double afterScore = Double.POSITIVE_INFINITY;
+        long afterId = 0;
+        if(hasText(after)){
+            long[] keys = ProductCursor.decode(after, 2, "after");
+            afterScore = Double.longBitsToDouble(keys[0]);
+            afterId = keys[1];
+        }
+        // one extra hit tells us whether another page exists
+        ProductSearchIndex.Matches matches = productSearchIndex.search(query, afterScore, afterId, limit + 1);
+        boolean hasMore = matches.hits().size() > limit;
+        List<ProductSearchHit> items = matches.hits().subList(0, Math.min(limit, matches.hits().size()));
+        ProductSearchHit last = hasMore ? items.get(items.size() - 1) : null;
+        String nextCursor = last == null ? null : ProductCursor.encode(Double.doubleToLongBits(last.getScore()), last.getId());
+        return new ProductSearchResult(List.copyOf(items), matches.total(), nextCursor);
+    }
+
+    @Override
+    public ProductCacheStats getCacheStats() {
+        return productCache.stats();
+    }
+
+    @Override
+    public ProductIdFilterStats getIdFilterStats() {
+        return productIdFilter.stats();
+    }
+
+    @Override
+    public ProductPriceStats getPriceStats() {
+        return productPriceStatistics.stats();
     }
 
     @Override
     public List<ProductDTO> getAllProducts() {
-        List<Product> products = productRepository.findAll();
+        CatalogSnapshot.Catalog catalog = catalogSnapshot.current();
+        if(catalog == null){
+            List<ProductDTO> fileProducts = catalogSnapshotFile.products();
+            if(fileProducts == null){
+                return allProductLoads.execute(Boolean.TRUE, this::loadAllProducts);
+            }
+            if(fileProducts.isEmpty()){
+                throw new NotFoundException();
+            }
+            return fileProducts;
+        }
+        if(catalog.products().isEmpty()){
+            throw new NotFoundException();
+        }
+        return catalog.products();
+    }
+
+    @Override
+    public SerializedCatalog getSerializedCatalog() {
+        CatalogSnapshot.Catalog catalog = catalogSnapshot.current();
+        if(catalog == null){
+            // no version to key on yet, so the bytes cannot be reused
+            return serialize(0, null, getAllProducts());
+        }
+        if(catalog.products().isEmpty()){
+            throw new NotFoundException();
+        }
+        SerializedCatalog cached = serializedCatalog;
+        if(cached != null && cached.getVersion() == catalog.version()){
+            return cached;
+        }
+        return catalogSerializations.execute(catalog.version(), () -> {
+            SerializedCatalog serialized = serialize(catalog.version(), catalog.tag(), catalog.sharedProducts());
+            SerializedCatalog previous = serializedCatalog;
+            if(previous == null || previous.getVersion() < serialized.getVersion()){
+                serializedCatalog = serialized;
+            }
+            return serialized;
+        });
+    }
+
+    private SerializedCatalog serialize(long version, String tag, List<ProductDTO> products) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(products);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream outputStream = new GZIPOutputStream(gzip)) {
+                outputStream.write(json);
+            }
+            return new SerializedCatalog(version, tag, json, gzip.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<ProductDTO> loadAllProducts() {
+        List<ProductDTO> products = productRepository.findAllDtos();
         if(isEmpty(products)){
             throw new NotFoundException();
         }
-        return products.stream().map(product -> new ProductDTO(product)).toList();
+        return products;
+    }
+
+    @Override
+    public ProductLookupResult getProductsByIds(Collection<Long> productIds) {
+        if(isEmpty(productIds) || productIds.size() > MAX_LOOKUP_IDS){
+            throw new InvalidValueException("ids");
+        }
+        LinkedHashSet<Long> uniqueIds = new LinkedHashSet<>(productIds);
+        for (Long productId : uniqueIds) {
+            if(productId == null || productId <= 0){
+                throw new InvalidValueException("ids");
+            }
+        }
+
+        Map<Long, ProductDTO> found = new HashMap<>(uniqueIds.size() * 2);
+        List<Long> chunk = new ArrayList<>(Math.min(LOOKUP_CHUNK_SIZE, uniqueIds.size()));
+        for (Long productId : uniqueIds) {
+            chunk.add(productId);
+            if(chunk.size() == LOOKUP_CHUNK_SIZE){
+                productRepository.findDtosByIdIn(chunk).forEach(product -> found.put(product.getId(), product));
+                chunk.clear();
+            }
+        }
+        if(!chunk.isEmpty()){
+            productRepository.findDtosByIdIn(chunk).forEach(product -> found.put(product.getId(), product));
+        }
+
+        List<ProductDTO> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long productId : uniqueIds) {
+            ProductDTO product = found.get(productId);
+            if(product == null){
+                missingIds.add(productId);
+            } else {
+                products.add(product);
+            }
+        }
+        return new ProductLookupResult(products, missingIds);
+    }
+
+    @Override
+    public ProductPage getProductPage(String after, int limit) {
+        if(limit <= 0 || limit > MAX_PAGE_SIZE){
+            throw new InvalidValueException("limit");
+        }
+        long afterId = hasText(after) ? ProductCursor.decode(after, 1, "after")[0] : 0L;
+        // one extra row tells us whether another page exists without a count query
+        List<ProductDTO> products = productRepository.findDtoPage(afterId, Limit.of(limit + 1));
+        boolean hasMore = products.size() > limit;
+        List<ProductDTO> items = hasMore ? products.subList(0, limit) : products;
+        String nextCursor = hasMore ? ProductCursor.encode(items.get(items.size() - 1).getId()) : null;
+        return new ProductPage(items, nextCursor);
+    }
+
+    @Override
+    public ProductPage getProductPageByPrice(BigDecimal minPrice, BigDecimal maxPrice, String after, int limit) {
+        if(limit <= 0 || limit > MAX_PAGE_SIZE){
+            throw new InvalidValueException("limit");
+        }
+        long min = minPrice == null ? 0 : toMinorUnits(minPrice, "minPrice");
+        long max = maxPrice == null ? Long.MAX_VALUE : toMinorUnits(maxPrice, "maxPrice");
+        if(min < 0){
+            throw new InvalidValueException("minPrice");
+        }
+        if(max < min){
+            throw new InvalidValueException("maxPrice");
+        }
+        long afterPrice = min;
+        long afterId = 0;
+        if(hasText(after)){
+            long[] keys = ProductCursor.decode(after, 2, "after");
+            // a cursor from a wider range must not reach below this one
+            if(keys[0] >= min){
+                afterPrice = keys[0];
+                afterId = keys[1];
+            }
+        }
+        List<ProductDTO> products = productRepository.findPriceRangePage(afterPrice, afterId, max, Limit.of(limit + 1));
+        boolean hasMore = products.size() > limit;
+        List<ProductDTO> items = hasMore ? products.subList(0, limit) : products;
+        ProductDTO last = hasMore ? items.get(items.size() - 1) : null;
+        String nextCursor = last == null ? null : ProductCursor.encode(last.getPrice(), last.getId());
+        return new ProductPage(items, nextCursor);
+    }
+
+    @Override
+    public List<ProductDTO> getTopProductsByPrice(String order, int limit) {
+        if(limit < 1 || limit > MAX_TOP_PRODUCTS){
+            throw new InvalidValueException("limit");
+        }
+        boolean cheapest;
+        if("cheapest".equalsIgnoreCase(order)){
+            cheapest = true;
+        } else if("expensive".equalsIgnoreCase(order)){
+            cheapest = false;
+        } else {
+            throw new InvalidValueException("order");
+        }
+        CatalogSnapshot.Catalog catalog = catalogSnapshot.current();
+        if(catalog == null){
+            return cheapest
+                    ? productRepository.findCheapest(Limit.of(limit))
+                    : productRepository.findMostExpensive(Limit.of(limit));
+        }
+        // every catalog version costs one O(n log k) scan per order, paid by the first request that sees it;
+        // compute() runs that scan once for concurrent callers and never replaces a newer result with an older one
+        TopProducts top = topProducts.get(cheapest);
+        if(top == null || top.version() < catalog.version()){
+            Comparator<ProductDTO> comparator = cheapest ? CHEAPEST_FIRST : CHEAPEST_FIRST.reversed();
+            top = topProducts.compute(cheapest, (key, cached) -> cached != null && cached.version() >= catalog.version()
+                    ? cached
+                    : new TopProducts(catalog.version(), smallest(catalog.sharedProducts(), comparator, MAX_TOP_PRODUCTS)));
+        }
+        // the cached entries are snapshot instances, so callers get copies
+        return CatalogSnapshot.copying(top.products().subList(0, Math.min(limit, top.products().size())));
+    }
+
+    // bounded heap: O(n log k) and k entries of extra memory instead of sorting the catalog
+    private static List<ProductDTO> smallest(List<ProductDTO> products, Comparator<ProductDTO> comparator, int k) {
+        PriorityQueue<ProductDTO> heap = new PriorityQueue<>(k + 1, comparator.reversed());
+        for (ProductDTO product : products) {
+            if(heap.size() < k){
+                heap.add(product);
+            } else if(comparator.compare(product, heap.peek()) < 0){
+                heap.poll();
+                heap.add(product);
+            }
+        }
+        List<ProductDTO> result = new ArrayList<>(heap);
+        result.sort(comparator);
+        return List.copyOf(result);
+    }
+
+    private record TopProducts(long version, List<ProductDTO> products) {
+    }
+
+    private static long toMinorUnits(BigDecimal price, String field) {
+        try {
+            return Prices.toMinorUnits(price);
+        } catch (ArithmeticException e) {
+            throw new InvalidValueException(field);
+        }
     }
 
     @Override
     public void saveProduct(ProductDTO productDTO) {
-        if(productDTO.getId() <= 0L){
+        validate(productDTO);
+
+        long version;
+        if(productProperties.getGroupCommit().isEnabled()){
+            Product product = new Product(productDTO);
+            productWriteCoalescer.save(product);
+            version = product.getVersion();
+        } else {
+            version = productRepository.upsert(productDTO.getId(), productDTO.getName(), productDTO.getPrice());
+        }
+        notifySaved(new ProductDTO(productDTO.getId(), productDTO.getName(), productDTO.getPrice(), version));
+    }
+
+    @Override
+    public long saveProductIfMatch(ProductDTO productDTO, long expectedVersion) {
+        validate(productDTO);
+
+        // conditional writes skip group commit: a mismatch has to fail only this caller, immediately
+        int updated = productRepository.updateIfVersion(productDTO.getId(), productDTO.getName(), productDTO.getPrice(), expectedVersion);
+        if(updated == 0){
+            throw new VersionConflictException(productDTO.getId().toString());
+        }
+        long version = expectedVersion + 1;
+        notifySaved(new ProductDTO(productDTO.getId(), productDTO.getName(), productDTO.getPrice(), version));
+        return version;
+    }
+
+    @Override
+    public ProductBatchResult saveProducts(Iterator<ProductDTO> products) {
+        int chunkSize = Math.max(1, productProperties.getBatch().getChunkSize());
+        List<ProductBatchItemResult> results = new ArrayList<>();
+        List<Product> chunk = new ArrayList<>(chunkSize);
+        List<ProductBatchItemResult> chunkResults = new ArrayList<>(chunkSize);
+        int index = 0;
+        while (products.hasNext()) {
+            ProductDTO productDTO;
+            try {
+                productDTO = products.next();
+            } catch (InvalidValueException e) {
+                // an element that could not be mapped to a product; the iterator has moved past it
+                results.add(new ProductBatchItemResult(index++, null, false, e.getMessage()));
+                continue;
+            }
+            ProductBatchItemResult result = new ProductBatchItemResult(index++, productDTO.getId(), false, null);
+            results.add(result);
+            try {
+                validate(productDTO);
+            } catch (InvalidValueException e) {
+                result.setError(e.getMessage());
+                continue;
+            }
+            chunk.add(new Product(productDTO));
+            chunkResults.add(result);
+            if(chunk.size() == chunkSize){
+                writeChunk(chunk, chunkResults);
+            }
+        }
+        if(!chunk.isEmpty()){
+            writeChunk(chunk, chunkResults);
+        }
+        int saved = (int) results.stream().filter(ProductBatchItemResult::isSaved).count();
+        return new ProductBatchResult(saved, results.size() - saved, results);
+    }
+
+    private void writeChunk(List<Product> chunk, List<ProductBatchItemResult> chunkResults) {
+        try {
+            productRepository.upsertAll(chunk);
+            chunkResults.forEach(result -> result.setSaved(true));
+            chunk.forEach(product -> notifySaved(new ProductDTO(product)));
+        } catch (DataAccessException e) {
+            // the chunk shares one transaction, so every item in it was rolled back
+            chunkResults.forEach(result -> result.setError(e.getMostSpecificCause().getMessage()));
+        }
+        chunk.clear();
+        chunkResults.clear();
+    }
+
+    private void notifySaved(ProductDTO productDTO) {
+        for (ProductChangeListener listener : productChangeListeners) {
+            listener.onProductSaved(productDTO);
+        }
+    }
+
+    private void validate(ProductDTO productDTO) {
+        if(productDTO.getId() == null || productDTO.getId() <= 0L){
             throw new InvalidValueException("id");
         }
-        if(!hasText(productDTO.getName()) || !productName.matcher(productDTO.getName()).matches()){
+        if(!ProductNameValidator.isValid(productDTO.getName())){
             throw new InvalidValueException("name");
         }
-        if(productDTO.getPrice() == null || productDTO.getPrice().longValue() <=0){
+        if(productDTO.getPrice() <= 0){
             throw new InvalidValueException("price");
         }
+    }
 
-        productRepository.saveAndFlush(new Product(productDTO));
+    @Override
+    public void exportProducts(ExportFormat format, OutputStream outputStream) throws IOException {
+        ProductExportWriter writer = ProductExportWriter.create(format, objectMapper, outputStream);
+        // a stateless scan keeps memory flat for any catalog size
+        try (Stream<ProductDTO> products = productBulkReader.streamAll()) {
+            Iterator<ProductDTO> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+            }
+        }
+        writer.finish();
     }
 }
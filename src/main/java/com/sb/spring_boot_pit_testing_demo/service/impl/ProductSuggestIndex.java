@@ -0,0 +1,301 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.service.ProductChangeListener;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSuggestion;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Prefix index over product names ranked by views. Names are kept lower-cased in one sorted array, so a
+ * prefix is a contiguous range found with two binary searches, and a max segment tree over the view counts
+ * yields the k most viewed entries of that range in {@code O(k log n)} without looking at the rest.
+ * <p>
+ * Each {@link Entries} is immutable and swapped in with a volatile write. Saves are queued and merged in by
+ * one background thread; view counts are folded into the ranking on a fixed interval, and only when views
+ * were recorded since the last rerank.
+ */
+@Slf4j
+@Component
+public class ProductSuggestIndex implements ProductChangeListener {
+
+    private final ProductBulkReader productBulkReader;
+    private final ProductProperties.Suggest properties;
+    private final ScheduledExecutorService executor;
+    private final LongObjectHashMap<LongAdder> views = new LongObjectHashMap<>(1024);
+    private final Queue<ProductDTO> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final LongAdder viewsSinceRerank = new LongAdder();
+    // package-private for tests
+    volatile Entries current;
+    private volatile boolean loading;
+    // only touched by the executor thread
+    private int failedLoads;
+
+    @Autowired
+    public ProductSuggestIndex(ProductBulkReader productBulkReader, ProductProperties productProperties) {
+        this(productBulkReader, productProperties, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-suggest");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    // the executor must run tasks one at a time; rebuilds rely on never overlapping
+    ProductSuggestIndex(ProductBulkReader productBulkReader, ProductProperties productProperties, ScheduledExecutorService executor) {
+        this.productBulkReader = productBulkReader;
+        this.properties = productProperties.getSuggest();
+        this.executor = executor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(properties.isEnabled()){
+            executor.execute(this::load);
+            long interval = Math.max(1, properties.getRerankInterval().toMillis());
+            executor.scheduleWithFixedDelay(this::rerank, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    // null until the index has been loaded
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        Entries entries = current;
+        return entries == null ? null : entries.top(normalize(prefix), limit);
+    }
+
+    public void recordView(long productId) {
+        if(!properties.isEnabled()){
+            return;
+        }
+        LongAdder counter = views.get(productId);
+        if(counter == null){
+            counter = views.merge(productId, new LongAdder(), (existing, created) -> existing);
+        }
+        counter.increment();
+        viewsSinceRerank.increment();
+    }
+
+    @Override
+    public void onProductSaved(ProductDTO product) {
+        if(!properties.isEnabled()){
+            return;
+        }
+        // before the first load starts the scan reads the row itself, and a failed load drops the queue
+        if(!loading && current == null){
+            return;
+        }
+        pending.add(new ProductDTO(product.getId(), product.getName(), product.getPrice(), product.getVersion()));
+        if(rebuildScheduled.compareAndSet(false, true)){
+            executor.execute(this::rebuild);
+        }
+    }
+
+    void load() {
+        loading = true;
+        try {
+            long start = System.nanoTime();
+            List<Entry> loaded = new ArrayList<>();
+            try (Stream<ProductDTO> products = productBulkReader.streamAll()) {
+                products.forEach(product -> loaded.add(new Entry(product.getId(), product.getName())));
+            }
+            loaded.sort(Entry.ORDER);
+            current = new Entries(loaded, views);
+            log.info("suggest index built over {} product names in {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+            // saves that arrived while loading are merged on top
+            rebuild();
+            failedLoads = 0;
+        } catch (RuntimeException e) {
+            pending.clear();
+            long delay = CatalogSnapshot.retryDelay(failedLoads++).toMillis();
+            log.warn("suggest index could not be built, suggestions stay on the database; retrying in {} ms", delay, e);
+            executor.schedule(this::load, delay, TimeUnit.MILLISECONDS);
+        } finally {
+            loading = false;
+        }
+    }
+
+    void rebuild() {
+        rebuildScheduled.set(false);
+        Entries entries = current;
+        if(entries == null){
+            return;
+        }
+        TreeMap<Long, ProductDTO> changes = new TreeMap<>();
+        ProductDTO change;
+        while ((change = pending.poll()) != null) {
+            changes.merge(change.getId(), change, CatalogSnapshot::newer);
+        }
+        if(!changes.isEmpty()){
+            current = entries.apply(changes, views);
+        }
+    }
+
+    void rerank() {
+        Entries entries = current;
+        // an idle catalog would otherwise rebuild the whole array and tree every interval
+        if(entries != null && viewsSinceRerank.sumThenReset() > 0){
+            current = entries.rerank(views);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    static String normalize(String name) {
+        // trailing spaces stay significant, so "red " does not match "redwood"
+        return name.stripLeading().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(long id, String name, String key) {
+        static final Comparator<Entry> ORDER = Comparator.comparing(Entry::key).thenComparingLong(Entry::id);
+
+        Entry(long id, String name) {
+            this(id, name, normalize(name));
+        }
+    }
+
+    /**
+     * One immutable version of the index: entries in key order, their views, and the segment tree.
+     */
+    static final class Entries {
+        private final Entry[] entries;
+        private final long[] views;
+        // tree[n + i] = i; tree[i] holds whichever of its two children has more views
+        private final int[] tree;
+
+        private Entries(List<Entry> sorted, LongObjectHashMap<LongAdder> counters) {
+            this.entries = sorted.toArray(new Entry[0]);
+            this.views = new long[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                LongAdder counter = counters.get(entries[i].id);
+                views[i] = counter == null ? 0 : counter.sum();
+            }
+            int n = entries.length;
+            this.tree = new int[2 * n];
+            for (int i = 0; i < n; i++) {
+                tree[n + i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+            }
+        }
+
+        Entries rerank(LongObjectHashMap<LongAdder> counters) {
+            return new Entries(Arrays.asList(entries), counters);
+        }
+
+        // drops the old entries of changed ids and merges the new ones in, keeping key order
+        Entries apply(TreeMap<Long, ProductDTO> changes, LongObjectHashMap<LongAdder> counters) {
+            List<Entry> added = new ArrayList<>(changes.size());
+            for (ProductDTO change : changes.values()) {
+                added.add(new Entry(change.getId(), change.getName()));
+            }
+            added.sort(Entry.ORDER);
+            List<Entry> merged = new ArrayList<>(entries.length + added.size());
+            int next = 0;
+            for (Entry entry : entries) {
+                if(changes.containsKey(entry.id)){
+                    continue;
+                }
+                while (next < added.size() && Entry.ORDER.compare(added.get(next), entry) < 0) {
+                    merged.add(added.get(next++));
+                }
+                merged.add(entry);
+            }
+            merged.addAll(added.subList(next, added.size()));
+            return new Entries(merged, counters);
+        }
+
+        List<ProductSuggestion> top(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            List<ProductSuggestion> suggestions = new ArrayList<>(Math.min(limit, to - from));
+            // candidate ranges ordered by their best entry; each pop emits one entry and splits its range
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> a[0] == b[0] ? 0 : better(a[0], b[0]) == a[0] ? -1 : 1);
+            if(from < to){
+                ranges.add(new int[]{best(from, to), from, to});
+            }
+            while (!ranges.isEmpty() && suggestions.size() < limit) {
+                int[] range = ranges.poll();
+                int index = range[0];
+                Entry entry = entries[index];
+                suggestions.add(new ProductSuggestion(entry.id, entry.name, views[index]));
+                if(range[1] < index){
+                    ranges.add(new int[]{best(range[1], index), range[1], index});
+                }
+                if(index + 1 < range[2]){
+                    ranges.add(new int[]{best(index + 1, range[2]), index + 1, range[2]});
+                }
+            }
+            return suggestions;
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = entries.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if(entries[mid].key.compareTo(key) < 0){
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // index with the most views in [from, to)
+        private int best(int from, int to) {
+            int n = entries.length;
+            int best = -1;
+            for (from += n, to += n; from < to; from >>= 1, to >>= 1) {
+                if((from & 1) == 1){
+                    best = better(best, tree[from++]);
+                }
+                if((to & 1) == 1){
+                    best = better(best, tree[--to]);
+                }
+            }
+            return best;
+        }
+
+        // more views first, then name order
+        private int better(int a, int b) {
+            if(a < 0){
+                return b;
+            }
+            if(b < 0){
+                return a;
+            }
+            return views[a] > views[b] || (views[a] == views[b] && a < b) ? a : b;
+        }
+    }
+}
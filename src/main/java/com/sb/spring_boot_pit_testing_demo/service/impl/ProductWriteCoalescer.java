@@ -0,0 +1,134 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for product writes: callers enqueue and block while a single flusher thread
+ * applies everything that arrived within the window (or up to the max batch size) in one transaction.
+ */
+@Slf4j
+@Component
+public class ProductWriteCoalescer {
+    // how often an idle flusher looks at the stop flag
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final ProductRepository productRepository;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public ProductWriteCoalescer(ProductRepository productRepository, ProductProperties productProperties) {
+        this.productRepository = productRepository;
+        ProductProperties.GroupCommit groupCommit = productProperties.getGroupCommit();
+        this.windowNanos = groupCommit.getWindow().toNanos();
+        this.maxBatchSize = Math.max(1, groupCommit.getMaxBatchSize());
+        if(groupCommit.isEnabled()){
+            this.flusher = new Thread(this::flushLoop, "product-group-commit");
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    // on return the product carries the version it was stored with
+    public void save(Product product) {
+        if(flusher == null || !running){
+            throw new IllegalStateException("group commit is not running");
+        }
+        PendingWrite write = new PendingWrite(product, new CompletableFuture<>());
+        queue.add(write);
+        if(!running && queue.remove(write)){
+            throw new IllegalStateException("group commit is shutting down");
+        }
+        try {
+            write.result().join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(first == null){
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if(next == null){
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            apply(batch);
+            batch.clear();
+        }
+        // anything still queued at shutdown is written rather than abandoned
+        queue.drainTo(batch);
+        if(!batch.isEmpty()){
+            apply(batch);
+        }
+    }
+
+    private void apply(List<PendingWrite> batch) {
+        try {
+            productRepository.upsertAll(batch.stream().map(PendingWrite::product).toList());
+            batch.forEach(write -> write.result().complete(null));
+        } catch (RuntimeException e) {
+            if(batch.size() == 1){
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            // one bad row rolls back the shared transaction; replay individually so only its caller fails
+            log.debug("group commit of {} writes failed, retrying individually", batch.size(), e);
+            for (PendingWrite write : batch) {
+                try {
+                    Product product = write.product();
+                    product.setVersion(productRepository.upsert(product.getId(), product.getName(), product.getPrice()));
+                    write.result().complete(null);
+                } catch (RuntimeException individual) {
+                    write.result().completeExceptionally(individual);
+                }
+            }
+        }
+    }
+
+    // the flusher is never interrupted: H2 and some JDBC drivers close the connection when interrupted mid-write
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if(flusher != null){
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private record PendingWrite(Product product, CompletableFuture<Void> result) {
+    }
+}
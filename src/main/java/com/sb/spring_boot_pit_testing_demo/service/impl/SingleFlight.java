@@ -0,0 +1,48 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key: the first caller runs the loader and everyone arriving
+ * while it runs shares its result or its exception. Nothing is remembered once the load completes.
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if(existing != null){
+            return await(existing);
+        }
+        try {
+            V value = loader.get();
+            load.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // errors too, or every caller waiting on this key would block forever
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    private V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            if(e.getCause() instanceof Error cause){
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
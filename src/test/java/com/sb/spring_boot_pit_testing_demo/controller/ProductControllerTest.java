@@ -1,7 +1,16 @@
 package com.sb.spring_boot_pit_testing_demo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.spring_boot_pit_testing_demo.exception.InvalidValueException;
+import com.sb.spring_boot_pit_testing_demo.exception.VersionConflictException;
 import com.sb.spring_boot_pit_testing_demo.service.ProductService;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ExportFormat;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductBatchItemResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductBatchResult;
 import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductLookupResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPage;
+import com.sb.spring_boot_pit_testing_demo.service.dto.SerializedCatalog;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,14 +18,27 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
-import java.math.BigDecimal;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,7 +52,7 @@ public class ProductControllerTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        productController = new ProductController(productService);
+        productController = new ProductController(productService, new ObjectMapper());
     }
 
     @Test
@@ -39,28 +61,122 @@ public class ProductControllerTest {
         productDTO.setId(1L);
         when(productService.getProductById(1L)).thenReturn(productDTO);
 
-        ProductDTO responseEntity = productController.getProductById(1L);
+        ResponseEntity<ProductDTO> responseEntity = productController.getProductById(1L, get(null, null));
 
-        assertEquals(1L, responseEntity.getId());
+        assertEquals(1L, responseEntity.getBody().getId());
+    }
+
+    @Test
+    public void testGetProductById_ETag() {
+        ProductDTO productDTO = new ProductDTO(1L, "Test Product", 1000L, 4L);
+        when(productService.getProductById(1L)).thenReturn(productDTO);
+        ServletWebRequest request = get(null, null);
+        ServletWebRequest conditional = get("W/\"4\"", null);
+
+        ResponseEntity<ProductDTO> responseEntity = productController.getProductById(1L, request);
+        ResponseEntity<ProductDTO> notModified = productController.getProductById(1L, conditional);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals("\"4\"", request.getResponse().getHeader(HttpHeaders.ETAG));
+        assertNull(notModified);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), conditional.getResponse().getStatus());
+        assertEquals("\"4\"", conditional.getResponse().getHeader(HttpHeaders.ETAG));
     }
 
     @Test
     public void testGetAllProducts() {
-        List<ProductDTO> products = new ArrayList<>();
-        ProductDTO productDTO1 = new ProductDTO();
-        productDTO1.setId(1L);
-        products.add(productDTO1);
-        ProductDTO productDTO2 = new ProductDTO();
-        productDTO2.setId(2L);
-        products.add(productDTO2);
-        when(productService.getAllProducts()).thenReturn(products);
+        byte[] json = "[{\"id\":1},{\"id\":2}]".getBytes(StandardCharsets.UTF_8);
+        when(productService.getSerializedCatalog()).thenReturn(new SerializedCatalog(3, "abc-3", json, new byte[]{1}));
+        ServletWebRequest request = get(null, null);
+
+        ResponseEntity<byte[]> responseEntity = productController.getAllProducts(request);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertArrayEquals(json, responseEntity.getBody());
+        assertEquals("\"abc-3\"", request.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, request.getResponse().getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void testGetAllProducts_Gzip() {
+        byte[] gzip = {1, 2, 3};
+        when(productService.getSerializedCatalog()).thenReturn(new SerializedCatalog(3, "abc-3", new byte[0], gzip));
+        ServletWebRequest request = get(null, "deflate, gzip;q=0.8");
+
+        ResponseEntity<byte[]> responseEntity = productController.getAllProducts(request);
+
+        assertArrayEquals(gzip, responseEntity.getBody());
+        assertEquals("gzip", responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("\"abc-3-gz\"", request.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testGetAllProducts_GzipRefused() {
+        when(productService.getSerializedCatalog()).thenReturn(new SerializedCatalog(3, "abc-3", new byte[]{1}, new byte[]{2}));
+
+        ResponseEntity<byte[]> responseEntity = productController.getAllProducts(get(null, "gzip;q=0, identity"));
+
+        assertArrayEquals(new byte[]{1}, responseEntity.getBody());
+        assertNull(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testGetAllProducts_NotModified() {
+        when(productService.getSerializedCatalog()).thenReturn(new SerializedCatalog(3, "abc-3", new byte[]{1}, new byte[]{1}));
+        ServletWebRequest request = get("\"abc-2\", \"abc-3\"", null);
+
+        ResponseEntity<byte[]> responseEntity = productController.getAllProducts(request);
+
+        assertNull(responseEntity);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), request.getResponse().getStatus());
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, request.getResponse().getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void testGetAllProducts_NoTagBeforeSnapshot() {
+        when(productService.getSerializedCatalog()).thenReturn(new SerializedCatalog(0, null, new byte[]{1}, new byte[]{1}));
+        ServletWebRequest request = get("*", null);
+
+        ResponseEntity<byte[]> responseEntity = productController.getAllProducts(request);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNull(request.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testGetProductsByIds() {
+        ProductLookupResult result = new ProductLookupResult(List.of(), List.of(1L));
+        when(productService.getProductsByIds(List.of(1L))).thenReturn(result);
+
+        ProductLookupResult responseEntity = productController.getProductsByIds(List.of(1L));
+
+        assertEquals(List.of(1L), responseEntity.getMissingIds());
+    }
+
+    @Test
+    public void testGetProductPage() {
+        ProductPage page = new ProductPage(List.of(new ProductDTO()), "cursor");
+        when(productService.getProductPage("after", 1)).thenReturn(page);
+
+        ProductPage responseEntity = productController.getProductPage("after", 1);
 
-        List<ProductDTO> responseEntity = productController.getAllProducts();
+        assertEquals("cursor", responseEntity.getNextCursor());
+    }
+
+    @Test
+    public void testExportProducts_StreamsWithItsOwnTimeout() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("id,name,price\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(productService).exportProducts(eq(ExportFormat.CSV), any(OutputStream.class));
 
+        WebAsyncTask<Void> task = productController.exportProducts("csv", response);
+        task.getCallable().call();
 
-        assertEquals(2, responseEntity.size());
-        assertEquals(1L, responseEntity.get(0).getId());
-        assertEquals(2L, responseEntity.get(1).getId());
+        assertEquals(ProductController.EXPORT_TIMEOUT.toMillis(), task.getTimeout());
+        assertEquals("text/csv", response.getContentType());
+        assertEquals("id,name,price\n", response.getContentAsString());
     }
 
     @Test
@@ -68,12 +184,113 @@ public class ProductControllerTest {
         ProductDTO productDTO = new ProductDTO();
         productDTO.setId(1L);
         productDTO.setName("Test Product");
-        productDTO.setPrice(BigDecimal.TEN);
+        productDTO.setPrice(1000L);
 
         doNothing().when(productService).saveProduct(any(ProductDTO.class));
 
-        productController.saveProduct(productDTO);
+        ResponseEntity<Void> responseEntity = productController.saveProduct(productDTO, null);
 
+        assertEquals(HttpStatus.NO_CONTENT, responseEntity.getStatusCode());
         verify(productService, times(1)).saveProduct(any(ProductDTO.class));
     }
+
+    @Test
+    public void testSaveProduct_IfMatch() {
+        ProductDTO productDTO = new ProductDTO(1L, "Test Product", 1000L, null);
+        when(productService.saveProductIfMatch(productDTO, 4L)).thenReturn(5L);
+
+        ResponseEntity<Void> responseEntity = productController.saveProduct(productDTO, "\"4\"");
+
+        assertEquals("\"5\"", responseEntity.getHeaders().getETag());
+        verify(productService, never()).saveProduct(any(ProductDTO.class));
+    }
+
+    @Test
+    public void testSaveProduct_IfMatchNotAVersion() {
+        ProductDTO productDTO = new ProductDTO(1L, "Test Product", 1000L, null);
+
+        assertThrows(VersionConflictException.class, () -> productController.saveProduct(productDTO, "W/\"4\""));
+    }
+
+    @Test
+    public void testSaveProducts() throws IOException {
+        String body = "[{\"id\":1,\"name\":\"First\",\"price\":1},{\"id\":2,\"name\":\"Second\",\"price\":2}]";
+        List<Long> ids = new ArrayList<>();
+        when(productService.saveProducts(any())).thenAnswer(invocation -> {
+            Iterator<ProductDTO> products = invocation.getArgument(0);
+            products.forEachRemaining(product -> ids.add(product.getId()));
+            return new ProductBatchResult(ids.size(), 0, List.of());
+        });
+
+        ProductBatchResult result = productController.saveProducts(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.getSaved());
+        assertEquals(List.of(1L, 2L), ids);
+    }
+
+    @Test
+    public void testSaveProducts_TruncatedBodyReportsWhereReadingStopped() throws IOException {
+        String body = "[{\"id\":1,\"name\":\"First\",\"price\":1},{\"id\":2,\"na";
+        List<Long> ids = new ArrayList<>();
+        when(productService.saveProducts(any())).thenAnswer(invocation -> {
+            Iterator<ProductDTO> products = invocation.getArgument(0);
+            products.forEachRemaining(product -> ids.add(product.getId()));
+            return new ProductBatchResult(ids.size(), 0, List.of(new ProductBatchItemResult(0, 1L, true, null)));
+        });
+
+        ProductBatchResult result = productController.saveProducts(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of(1L), ids);
+        assertEquals(1, result.getSaved());
+        assertEquals(1, result.getFailed());
+        assertEquals(2, result.getItems().size());
+        ProductBatchItemResult stopped = result.getItems().get(1);
+        assertEquals(1, stopped.getIndex());
+        assertNull(stopped.getId());
+        assertTrue(stopped.getError().startsWith("reading stopped at line 1, column "), stopped.getError());
+    }
+
+    @Test
+    public void testSaveProducts_UnmappedElementsAreSkipped() throws IOException {
+        String body = "[{\"id\":1,\"name\":\"First\",\"price\":1},42,"
+                + "{\"id\":3,\"name\":{\"nested\":[1,{\"deeper\":2}]},\"price\":3},"
+                + "{\"id\":4,\"name\":\"Fourth\",\"price\":4}]";
+        List<Long> ids = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        when(productService.saveProducts(any())).thenAnswer(invocation -> {
+            Iterator<ProductDTO> products = invocation.getArgument(0);
+            while (products.hasNext()) {
+                try {
+                    ids.add(products.next().getId());
+                } catch (InvalidValueException e) {
+                    skipped.add(e.getField());
+                }
+            }
+            return new ProductBatchResult(ids.size(), skipped.size(), List.of());
+        });
+
+        ProductBatchResult result = productController.saveProducts(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of(1L, 4L), ids);
+        assertEquals(List.of("products[1]", "products[2].name"), skipped);
+        assertEquals(2, result.getFailed());
+    }
+
+    @Test
+    public void testSaveProducts_NotAnArray() {
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(InvalidValueException.class, () -> productController.saveProducts(new ByteArrayInputStream(body)));
+    }
+
+    private static ServletWebRequest get(String ifNoneMatch, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+        if(ifNoneMatch != null){
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if(acceptEncoding != null){
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
 }
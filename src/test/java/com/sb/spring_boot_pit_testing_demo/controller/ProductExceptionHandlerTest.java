@@ -0,0 +1,60 @@
+package com.sb.spring_boot_pit_testing_demo.controller;
+
+import com.sb.spring_boot_pit_testing_demo.exception.InvalidValueException;
+import com.sb.spring_boot_pit_testing_demo.exception.NotFoundException;
+import com.sb.spring_boot_pit_testing_demo.exception.ServiceUnavailableException;
+import com.sb.spring_boot_pit_testing_demo.exception.VersionConflictException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ProblemDetail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ProductExceptionHandlerTest {
+
+    private final ProductExceptionHandler productExceptionHandler = new ProductExceptionHandler();
+
+    @Test
+    public void testHandleNotFound() {
+        NotFoundException exception = new NotFoundException("7");
+
+        ProblemDetail problem = productExceptionHandler.handleNotFound(exception);
+
+        assertEquals(404, problem.getStatus());
+        assertEquals("Product not found with the ID 7", problem.getDetail());
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    public void testHandleNotFound_AllProducts() {
+        ProblemDetail problem = productExceptionHandler.handleNotFound(new NotFoundException());
+
+        assertEquals("Products not found", problem.getDetail());
+    }
+
+    @Test
+    public void testHandleInvalidValue() {
+        InvalidValueException exception = new InvalidValueException("price");
+
+        ProblemDetail problem = productExceptionHandler.handleInvalidValue(exception);
+
+        assertEquals(400, problem.getStatus());
+        assertEquals("invalid value provided for the field price", problem.getDetail());
+        assertEquals("price", problem.getProperties().get("field"));
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    public void testHandleVersionConflict() {
+        ProblemDetail problem = productExceptionHandler.handleVersionConflict(new VersionConflictException("7"));
+
+        assertEquals(412, problem.getStatus());
+    }
+
+    @Test
+    public void testHandleServiceUnavailable() {
+        ProblemDetail problem = productExceptionHandler.handleServiceUnavailable(new ServiceUnavailableException("search"));
+
+        assertEquals(503, problem.getStatus());
+        assertEquals("search", problem.getProperties().get("feature"));
+    }
+}
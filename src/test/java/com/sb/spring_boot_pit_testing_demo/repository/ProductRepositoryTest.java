@@ -0,0 +1,82 @@
+package com.sb.spring_boot_pit_testing_demo.repository;
+
+import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SpringBootTest
+public class ProductRepositoryTest extends Assertions {
+
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 25;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    public void testUpsert_ConcurrentWritersGetDistinctVersions() throws Exception {
+        List<Long> versions = concurrently(() -> productRepository.upsert(900_001L, "Contended", 100L));
+
+        assertEquals(THREADS * WRITES_PER_THREAD, new HashSet<>(versions).size());
+        assertEquals(THREADS * WRITES_PER_THREAD - 1L, productRepository.findDtoById(900_001L).orElseThrow().getVersion());
+    }
+
+    @Test
+    public void testUpsertAll_ConcurrentWritersGetDistinctVersions() throws Exception {
+        List<Long> versions = concurrently(() -> {
+            Product product = new Product(900_002L, "Contended", 100L, null);
+            productRepository.upsertAll(List.of(product));
+            return product.getVersion();
+        });
+
+        assertEquals(THREADS * WRITES_PER_THREAD, new HashSet<>(versions).size());
+    }
+
+    @Test
+    public void testUpsertAll_RepeatedIdInOneCall() {
+        Product first = new Product(900_003L, "First", 100L, null);
+        Product second = new Product(900_003L, "Second", 200L, null);
+        Product other = new Product(900_004L, "Other", 300L, null);
+
+        productRepository.upsertAll(List.of(first, other, second));
+
+        assertEquals(0L, first.getVersion());
+        assertEquals(1L, second.getVersion());
+        assertEquals(0L, other.getVersion());
+        assertEquals("Second", productRepository.findDtoById(900_003L).orElseThrow().getName());
+    }
+
+    // the first write of each thread races the others to insert the row
+    private static List<Long> concurrently(Callable<Long> write) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> versions = new ArrayList<>(WRITES_PER_THREAD);
+                    for (int j = 0; j < WRITES_PER_THREAD; j++) {
+                        versions.add(write.call());
+                    }
+                    return versions;
+                }));
+            }
+            List<Long> versions = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                versions.addAll(future.get());
+            }
+            return versions;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
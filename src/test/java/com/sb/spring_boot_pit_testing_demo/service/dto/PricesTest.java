@@ -0,0 +1,49 @@
+package com.sb.spring_boot_pit_testing_demo.service.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+public class PricesTest extends Assertions {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testFormat() {
+        assertEquals("0.05", Prices.format(5));
+        assertEquals("12.50", Prices.format(1250));
+        assertEquals("-3.07", Prices.format(-307));
+    }
+
+    @Test
+    public void testToMinorUnits_RoundsHalfUp() {
+        assertEquals(1250, Prices.toMinorUnits(new BigDecimal("12.5")));
+        assertEquals(101, Prices.toMinorUnits(new BigDecimal("1.005")));
+        assertEquals(new BigDecimal("12.50"), Prices.toDecimal(1250));
+    }
+
+    @Test
+    public void testJson_AcceptsExistingShapes() throws JsonProcessingException {
+        assertEquals(1000, objectMapper.readValue("{\"price\":10}", ProductDTO.class).getPrice());
+        assertEquals(1050, objectMapper.readValue("{\"price\":10.5}", ProductDTO.class).getPrice());
+        assertEquals(1050, objectMapper.readValue("{\"price\":\"10.50\"}", ProductDTO.class).getPrice());
+        assertEquals(0, objectMapper.readValue("{\"price\":null}", ProductDTO.class).getPrice());
+        assertEquals(0, objectMapper.readValue("{\"id\":1}", ProductDTO.class).getPrice());
+    }
+
+    @Test
+    public void testJson_RejectsOutOfRange() {
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("{\"price\":1e30}", ProductDTO.class));
+    }
+
+    @Test
+    public void testJson_WritesDecimal() throws JsonProcessingException {
+        ProductDTO productDTO = new ProductDTO(1L, "Name", 1999L, 2L);
+
+        assertEquals("{\"id\":1,\"name\":\"Name\",\"price\":19.99,\"version\":2}", objectMapper.writeValueAsString(productDTO));
+    }
+}
@@ -0,0 +1,110 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogSnapshotFileTest extends Assertions {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductBulkReader productBulkReader;
+
+    @TempDir
+    private Path directory;
+
+    private ProductProperties productProperties;
+
+    private final List<CatalogSnapshotFile> opened = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        productProperties = new ProductProperties();
+        productProperties.getSnapshotFile().setEnabled(true);
+        productProperties.getSnapshotFile().setPath(directory.resolve("catalog.snapshot").toString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        opened.forEach(CatalogSnapshotFile::shutdown);
+    }
+
+    @Test
+    public void testWrite_OnlyWhenCatalogChanged() throws Exception {
+        CatalogSnapshotFile snapshotFile = open(loadedSnapshot());
+
+        assertTrue(snapshotFile.write());
+        assertFalse(snapshotFile.write());
+    }
+
+    @Test
+    public void testOpen_ServesFileUntilSnapshotLoads() throws Exception {
+        open(loadedSnapshot()).write();
+        CatalogSnapshot restarted = new CatalogSnapshot(productRepository, productBulkReader, productProperties, runnable -> { });
+
+        CatalogSnapshotFile snapshotFile = open(restarted);
+        snapshotFile.onProductSaved(new ProductDTO(3L, "Saved", 300L, 0L));
+
+        assertEquals(new ProductDTO(2L, "Product 2", 100L, 0L), snapshotFile.find(2L));
+        assertEquals(List.of(1L, 2L, 3L), snapshotFile.products().stream().map(ProductDTO::getId).toList());
+        assertNull(snapshotFile.find(4L));
+    }
+
+    @Test
+    public void testOpen_CorruptFileIsIgnored() throws Exception {
+        open(loadedSnapshot()).write();
+        Path path = Path.of(productProperties.getSnapshotFile().getPath());
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[CatalogSnapshotFile.HEADER_SIZE] ^= 1;
+        Files.write(path, bytes);
+
+        CatalogSnapshotFile snapshotFile = open(new CatalogSnapshot(productRepository, productBulkReader, productProperties, runnable -> { }));
+
+        assertNull(snapshotFile.find(1L));
+        assertNull(snapshotFile.products());
+    }
+
+    @Test
+    public void testOpen_RefusedWithoutSnapshot() {
+        productProperties.getSnapshot().setEnabled(false);
+        CatalogSnapshotFile snapshotFile = new CatalogSnapshotFile(productBulkReader,
+                new CatalogSnapshot(productRepository, productBulkReader, productProperties, runnable -> { }), productProperties);
+
+        assertThrows(IllegalStateException.class, snapshotFile::open);
+    }
+
+    private CatalogSnapshot loadedSnapshot() {
+        when(productBulkReader.streamAll())
+                .thenReturn(Stream.of(new ProductDTO(1L, "Product 1", 100L, 0L), new ProductDTO(2L, "Product 2", 100L, 0L)));
+        CatalogSnapshot catalogSnapshot = new CatalogSnapshot(productRepository, productBulkReader, productProperties, Runnable::run);
+        catalogSnapshot.load();
+        return catalogSnapshot;
+    }
+
+    private CatalogSnapshotFile open(CatalogSnapshot catalogSnapshot) {
+        CatalogSnapshotFile snapshotFile = new CatalogSnapshotFile(productBulkReader, catalogSnapshot, productProperties);
+        snapshotFile.open();
+        opened.add(snapshotFile);
+        return snapshotFile;
+    }
+}
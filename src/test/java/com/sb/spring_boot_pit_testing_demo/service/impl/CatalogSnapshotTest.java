@@ -0,0 +1,174 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogSnapshotTest extends Assertions {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductBulkReader productBulkReader;
+
+    // the load retry is handed over from a timer thread
+    private final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+
+    private CatalogSnapshot catalogSnapshot;
+
+    @BeforeEach
+    public void setUp() {
+        ProductProperties productProperties = new ProductProperties();
+        catalogSnapshot = new CatalogSnapshot(productRepository, productBulkReader, productProperties, tasks::add);
+    }
+
+    @Test
+    public void testLoad_ScansCatalog() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(product(1L), product(2L), product(3L)));
+
+        catalogSnapshot.start();
+        runTasks();
+
+        assertEquals(List.of(1L, 2L, 3L), ids());
+        assertEquals(1, catalogSnapshot.current().version());
+    }
+
+    @Test
+    public void testOnProductSaved_CoalescesIntoOneRebuild() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(product(2L)));
+        catalogSnapshot.start();
+        runTasks();
+
+        catalogSnapshot.onProductSaved(new ProductDTO(1L, "Inserted", 100L, 0L));
+        catalogSnapshot.onProductSaved(new ProductDTO(2L, "Updated", 1000L, 0L));
+        catalogSnapshot.onProductSaved(new ProductDTO(4L, "Appended", 100L, 0L));
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        assertEquals(List.of(1L, 2L, 4L), ids());
+        assertEquals("Updated", catalogSnapshot.find(2L).getName());
+        assertNull(catalogSnapshot.find(3L));
+        assertEquals(2, catalogSnapshot.current().version());
+    }
+
+    @Test
+    public void testOnProductSaved_DuringLoadIsReplayed() {
+        when(productBulkReader.streamAll()).thenAnswer(invocation -> {
+            catalogSnapshot.onProductSaved(new ProductDTO(5L, "During", 100L, 0L));
+            return Stream.of(product(1L));
+        });
+        catalogSnapshot.start();
+        runTasks();
+
+        assertEquals(List.of(1L, 5L), ids());
+    }
+
+    @Test
+    public void testOnProductSaved_BeforeLoadIsLeftToTheScan() {
+        catalogSnapshot.onProductSaved(new ProductDTO(5L, "Early", 100L, 0L));
+        assertTrue(tasks.isEmpty());
+
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(product(5L)));
+        catalogSnapshot.start();
+        runTasks();
+
+        assertEquals(List.of(5L), ids());
+    }
+
+    @Test
+    public void testLoad_FailureDropsQueueAndRetries() throws InterruptedException {
+        when(productBulkReader.streamAll()).thenAnswer(invocation -> {
+            catalogSnapshot.onProductSaved(new ProductDTO(5L, "During", 100L, 0L));
+            throw new IllegalStateException("database down");
+        });
+        catalogSnapshot.load();
+        catalogSnapshot.onProductSaved(new ProductDTO(6L, "After", 100L, 0L));
+        assertNull(catalogSnapshot.current());
+        assertNull(catalogSnapshot.find(5L));
+        runTasks();
+
+        // the retry lands on the executor after the first backoff delay
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (tasks.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        doReturn(Stream.of(product(1L))).when(productBulkReader).streamAll();
+        runTasks();
+
+        assertEquals(List.of(1L), ids());
+    }
+
+    @Test
+    public void testRetryDelay_DoublesUpToCap() {
+        assertEquals(Duration.ofSeconds(1), CatalogSnapshot.retryDelay(0));
+        assertEquals(Duration.ofSeconds(8), CatalogSnapshot.retryDelay(3));
+        assertEquals(Duration.ofMinutes(5), CatalogSnapshot.retryDelay(40));
+    }
+
+    @Test
+    public void testOnProductSaved_OlderVersionDoesNotOverwrite() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(product(2L)));
+        catalogSnapshot.start();
+        runTasks();
+
+        catalogSnapshot.onProductSaved(new ProductDTO(2L, "Second", 100L, 2L));
+        catalogSnapshot.onProductSaved(new ProductDTO(2L, "First", 100L, 1L));
+        assertEquals("Second", catalogSnapshot.find(2L).getName());
+        runTasks();
+
+        assertEquals("Second", catalogSnapshot.current().products().get(0).getName());
+    }
+
+    @Test
+    public void testProducts_CallersCannotChangeTheSnapshot() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(product(1L)));
+        catalogSnapshot.start();
+        runTasks();
+
+        catalogSnapshot.current().products().get(0).setName("Changed");
+        catalogSnapshot.find(1L).setPrice(1L);
+        assertThrows(UnsupportedOperationException.class, () -> catalogSnapshot.current().products().set(0, product(2L)));
+
+        assertEquals(product(1L), catalogSnapshot.current().products().get(0));
+        assertEquals(product(1L), catalogSnapshot.find(1L));
+        assertSame(catalogSnapshot.current().sharedProducts().get(0), catalogSnapshot.current().sharedProducts().get(0));
+    }
+
+    @Test
+    public void testFind_NullBeforeLoad() {
+        catalogSnapshot.onProductSaved(new ProductDTO(5L, "Early", 100L, 0L));
+
+        assertNull(catalogSnapshot.find(5L));
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private List<Long> ids() {
+        return catalogSnapshot.current().products().stream().map(ProductDTO::getId).toList();
+    }
+
+    private static ProductDTO product(long id) {
+        return new ProductDTO(id, "Product " + id, 100L, 0L);
+    }
+}
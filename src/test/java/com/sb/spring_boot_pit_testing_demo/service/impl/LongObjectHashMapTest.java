@@ -0,0 +1,39 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LongObjectHashMapTest extends Assertions {
+
+    @Test
+    public void testMerge_GrowsPastExpectedSize() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+
+        for (long key = 1; key <= 10_000; key++) {
+            map.merge(key, "v" + key, (existing, value) -> value);
+        }
+
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals("v" + key, map.get(key));
+        }
+        assertNull(map.get(10_001));
+    }
+
+    @Test
+    public void testMerge_ResolverPicksStoredValue() {
+        LongObjectHashMap<Integer> map = new LongObjectHashMap<>(16);
+        map.merge(7, 2, Math::max);
+
+        assertEquals(2, map.merge(7, 1, Math::max));
+        assertEquals(2, map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testMerge_ZeroKeyRejected() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(16);
+
+        assertThrows(IllegalArgumentException.class, () -> map.merge(0, "zero", (existing, value) -> value));
+    }
+}
@@ -0,0 +1,130 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OffHeapProductStoreTest extends Assertions {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductBulkReader productBulkReader;
+
+    private OffHeapProductStore offHeapProductStore;
+
+    @BeforeEach
+    public void setUp() {
+        ProductProperties productProperties = new ProductProperties();
+        productProperties.getOffHeap().setEnabled(true);
+        offHeapProductStore = new OffHeapProductStore(productRepository, productBulkReader, productProperties);
+    }
+
+    @Test
+    public void testLoad_MaterializesStoredProducts() {
+        when(productRepository.count()).thenReturn(3L);
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(new ProductDTO(1L, "First", 100L, 0L),
+                new ProductDTO(2L, "Second", 250L, 4L), new ProductDTO(3L, "Third", 1L, 1L)));
+
+        assertTrue(offHeapProductStore.load());
+
+        assertEquals(new ProductDTO(2L, "Second", 250L, 4L), offHeapProductStore.findById(2L).orElseThrow());
+        assertEquals(3, offHeapProductStore.count());
+        assertTrue(offHeapProductStore.findById(4L).isEmpty());
+    }
+
+    @Test
+    public void testLoad_FailureStartsOverFromEmpty() {
+        when(productRepository.count()).thenReturn(2L);
+        when(productBulkReader.streamAll())
+                .thenReturn(Stream.of(new ProductDTO(1L, "Partial", 100L, 0L), new ProductDTO(2L, "Second", 250L, 1L))
+                        .map(product -> {
+                            if(product.getId() == 2L){
+                                throw new IllegalStateException("database down");
+                            }
+                            return product;
+                        }))
+                .thenReturn(Stream.of(new ProductDTO(1L, "First", 100L, 0L), new ProductDTO(2L, "Second", 250L, 1L)));
+        offHeapProductStore.onProductSaved(new ProductDTO(3L, "Saved during load", 100L, 0L));
+
+        assertFalse(offHeapProductStore.load());
+
+        assertEquals(0, offHeapProductStore.count());
+        assertEquals(0, offHeapProductStore.deadBytes());
+        assertTrue(offHeapProductStore.findById(1L).isEmpty());
+
+        assertTrue(offHeapProductStore.load());
+
+        assertEquals(2, offHeapProductStore.count());
+        assertEquals(new ProductDTO(1L, "First", 100L, 0L), offHeapProductStore.findById(1L).orElseThrow());
+        assertTrue(offHeapProductStore.findById(3L).isEmpty());
+    }
+
+    @Test
+    public void testFindById_EmptyBeforeLoad() {
+        offHeapProductStore.onProductSaved(new ProductDTO(1L, "Early", 100L, 0L));
+
+        assertTrue(offHeapProductStore.findById(1L).isEmpty());
+    }
+
+    @Test
+    public void testOnProductSaved_KeepsNewestVersion() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.empty());
+        offHeapProductStore.load();
+
+        offHeapProductStore.onProductSaved(new ProductDTO(1L, "Second", 100L, 2L));
+        offHeapProductStore.onProductSaved(new ProductDTO(1L, "First", 100L, 1L));
+        offHeapProductStore.onProductSaved(new ProductDTO(1L, "Third", 300L, 3L));
+
+        assertEquals(new ProductDTO(1L, "Third", 300L, 3L), offHeapProductStore.findById(1L).orElseThrow());
+        assertTrue(offHeapProductStore.deadBytes() > 0);
+    }
+
+    @Test
+    public void testOnProductSaved_CompactsDeadRecords() {
+        ProductProperties productProperties = new ProductProperties();
+        productProperties.getOffHeap().setEnabled(true);
+        OffHeapProductStore store = new OffHeapProductStore(productRepository, productBulkReader, productProperties, 4096);
+        when(productBulkReader.streamAll()).thenReturn(Stream.empty());
+        store.load();
+        long indexBytes = store.offHeapBytes();
+
+        for (long version = 0; version < 1000; version++) {
+            for (long id = 1; id <= 10; id++) {
+                store.onProductSaved(new ProductDTO(id, "Product " + id + " v" + version, version, version));
+            }
+        }
+
+        assertEquals(10, store.count());
+        assertEquals(new ProductDTO(7L, "Product 7 v999", 999L, 999L), store.findById(7L).orElseThrow());
+        assertTrue(store.deadBytes() < 4096, "dead bytes " + store.deadBytes());
+        // 10 000 records of ~40 bytes would need about a hundred chunks without compaction
+        assertTrue(store.offHeapBytes() - indexBytes <= 3 * 4096, "chunk bytes " + (store.offHeapBytes() - indexBytes));
+    }
+
+    @Test
+    public void testOnProductSaved_GrowsIndex() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.empty());
+        offHeapProductStore.load();
+
+        for (long id = 1; id <= 20_000; id++) {
+            offHeapProductStore.onProductSaved(new ProductDTO(id, "Product " + id, id, 0L));
+        }
+
+        assertEquals(20_000, offHeapProductStore.count());
+        assertEquals("Product 12345", offHeapProductStore.findById(12_345L).orElseThrow().getName());
+    }
+}
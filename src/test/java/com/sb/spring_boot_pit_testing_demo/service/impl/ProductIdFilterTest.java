@@ -0,0 +1,104 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductIdFilterStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.stream.LongStream;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductIdFilterTest extends Assertions {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductBulkReader productBulkReader;
+
+    private ProductIdFilter productIdFilter;
+
+    @BeforeEach
+    public void setUp() {
+        ProductProperties productProperties = new ProductProperties();
+        productProperties.getIdFilter().setMinimumCapacity(10_000);
+        productIdFilter = new ProductIdFilter(productRepository, productBulkReader, productProperties);
+    }
+
+    @Test
+    public void testMightContain_PassesEverythingUntilBuilt() {
+        assertTrue(productIdFilter.mightContain(42L));
+        assertFalse(productIdFilter.stats().isReady());
+    }
+
+    @Test
+    public void testBuild_NoFalseNegatives() {
+        when(productRepository.count()).thenReturn(1000L);
+        when(productBulkReader.streamAllIds()).thenReturn(LongStream.rangeClosed(1, 1000));
+
+        assertTrue(productIdFilter.build());
+
+        for (long id = 1; id <= 1000; id++) {
+            assertTrue(productIdFilter.mightContain(id));
+        }
+    }
+
+    @Test
+    public void testBuild_RejectsMostUnknownIds() {
+        when(productRepository.count()).thenReturn(1000L);
+        when(productBulkReader.streamAllIds()).thenReturn(LongStream.rangeClosed(1, 1000));
+        productIdFilter.build();
+
+        long falsePositives = LongStream.rangeClosed(1_000_001, 1_010_000).filter(productIdFilter::mightContain).count();
+
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+        ProductIdFilterStats stats = productIdFilter.stats();
+        assertEquals(10_000 - falsePositives, stats.getDefiniteMisses());
+        assertTrue(stats.getExpectedFalsePositiveRate() < 0.01);
+    }
+
+    @Test
+    public void testBuild_FailureLeavesFilterOpenAndNextBuildSucceeds() {
+        when(productRepository.count()).thenReturn(1000L);
+        when(productBulkReader.streamAllIds())
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(LongStream.rangeClosed(1, 1000));
+
+        assertFalse(productIdFilter.build());
+
+        assertTrue(productIdFilter.mightContain(1_000_001L));
+        ProductIdFilterStats stats = productIdFilter.stats();
+        assertTrue(stats.isEnabled());
+        assertFalse(stats.isReady());
+        // not added while no filter is built
+        productIdFilter.onProductSaved(new ProductDTO(7L, "Saved", 100L, 0L));
+
+        assertTrue(productIdFilter.build());
+
+        for (long id = 1; id <= 1000; id++) {
+            assertTrue(productIdFilter.mightContain(id));
+        }
+        assertTrue(productIdFilter.stats().isReady());
+    }
+
+    @Test
+    public void testOnProductSaved_AddsId() {
+        when(productRepository.count()).thenReturn(0L);
+        when(productBulkReader.streamAllIds()).thenReturn(LongStream.empty());
+        productIdFilter.build();
+
+        productIdFilter.onProductSaved(new ProductDTO(7L, "Saved", 100L, 0L));
+
+        assertTrue(productIdFilter.mightContain(7L));
+    }
+}
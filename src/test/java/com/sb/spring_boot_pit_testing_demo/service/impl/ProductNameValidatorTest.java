@@ -0,0 +1,37 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.springframework.util.StringUtils.hasText;
+
+public class ProductNameValidatorTest extends Assertions {
+
+    private static final Pattern PRODUCT_NAME = Pattern.compile("^([0-9A-Za-z ]+)$");
+
+    @Test
+    public void testIsValid_MatchesRegexRules() {
+        List<String> names = List.of("", " ", "   ", "a", "Z", "0", "Test Product", " leading", "trailing ",
+                "123", "dash-name", "under_score", "tab\tname", "line\n", "\n", "café", "naïve", "中文",
+                "a\u0000", "emoji \uD83D\uDE00", "ALL CAPS 99", "@", "[", "`", "{", "/", ":");
+        for (String name : names) {
+            assertEquals(hasText(name) && PRODUCT_NAME.matcher(name).matches(), ProductNameValidator.isValid(name), name);
+        }
+    }
+
+    @Test
+    public void testIsValid_EveryCharacter() {
+        for (char c = 0; c < 512; c++) {
+            String name = "a" + c;
+            assertEquals(PRODUCT_NAME.matcher(name).matches(), ProductNameValidator.isValid(name), "char " + (int) c);
+        }
+    }
+
+    @Test
+    public void testIsValid_Null() {
+        assertFalse(ProductNameValidator.isValid(null));
+    }
+}
@@ -0,0 +1,105 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPriceStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductPriceStatisticsTest extends Assertions {
+
+    @Mock
+    private ProductBulkReader productBulkReader;
+
+    private ProductPriceStatistics productPriceStatistics;
+
+    @BeforeEach
+    public void setUp() {
+        productPriceStatistics = new ProductPriceStatistics(productBulkReader, new ProductProperties());
+    }
+
+    @Test
+    public void testStats_EmptyUntilLoaded() {
+        productPriceStatistics.onProductSaved(new ProductDTO(1L, "Early", 100L, 0L));
+
+        assertFalse(productPriceStatistics.stats().isReady());
+        assertEquals(0, productPriceStatistics.stats().getCount());
+    }
+
+    @Test
+    public void testLoad_FailureStartsOverFromEmpty() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(new ProductDTO(1L, "One", 100L, 0L),
+                new ProductDTO(2L, "Two", 300L, 0L)).peek(product -> {
+            productPriceStatistics.onProductSaved(new ProductDTO(3L, "Queued", 700L, 0L));
+            if(product.getId() == 2L){
+                throw new IllegalStateException("connection reset");
+            }
+        }));
+
+        assertFalse(productPriceStatistics.load());
+        assertFalse(productPriceStatistics.stats().isReady());
+        // not queued while no load is running
+        productPriceStatistics.onProductSaved(new ProductDTO(4L, "Dropped", 900L, 0L));
+
+        doReturn(Stream.of(new ProductDTO(1L, "One", 100L, 0L), new ProductDTO(2L, "Two", 300L, 0L)))
+                .when(productBulkReader).streamAll();
+        assertTrue(productPriceStatistics.load());
+
+        ProductPriceStats stats = productPriceStatistics.stats();
+        assertEquals(2, stats.getCount());
+        assertEquals(400, stats.getSum());
+        assertEquals(300L, stats.getMax());
+    }
+
+    @Test
+    public void testOnProductSaved_UpdateMovesPrice() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(
+                new ProductDTO(1L, "One", 100L, 0L), new ProductDTO(2L, "Two", 300L, 0L), new ProductDTO(3L, "Three", 200L, 0L)));
+        productPriceStatistics.load();
+
+        productPriceStatistics.onProductSaved(new ProductDTO(2L, "Two", 50L, 1L));
+        productPriceStatistics.onProductSaved(new ProductDTO(2L, "Two", 999L, 0L));
+        ProductPriceStats stats = productPriceStatistics.stats();
+
+        assertEquals(3, stats.getCount());
+        assertEquals(350, stats.getSum());
+        assertEquals(50L, stats.getMin());
+        assertEquals(200L, stats.getMax());
+        assertEquals(117L, stats.getMean());
+        assertSame(stats, productPriceStatistics.stats());
+    }
+
+    @Test
+    public void testStats_QuantilesWithinBucketPrecision() throws Exception {
+        when(productBulkReader.streamAll()).thenReturn(Stream.empty());
+        productPriceStatistics.load();
+        for (long id = 1; id <= 10_000; id++) {
+            productPriceStatistics.onProductSaved(new ProductDTO(id, "Product", id * 100, 0L));
+        }
+
+        ProductPriceStats stats = productPriceStatistics.stats();
+
+        assertEquals(500_000, stats.getQuantiles().get("p50"), 500_000 / 64.0);
+        assertEquals(990_000, stats.getQuantiles().get("p99"), 990_000 / 64.0);
+        String json = new ObjectMapper().writeValueAsString(stats);
+        assertTrue(json.contains("\"min\":1.00"), json);
+    }
+
+    @Test
+    public void testBucket_MidpointStaysInBucket() {
+        for (long value : new long[]{0, 63, 64, 65, 127, 128, 1_000_003, Long.MAX_VALUE / 3}) {
+            assertEquals(ProductPriceStatistics.bucket(value), ProductPriceStatistics.bucket(ProductPriceStatistics.midpoint(ProductPriceStatistics.bucket(value))));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSearchHit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductSearchIndexTest extends Assertions {
+
+    @Mock
+    private ProductBulkReader productBulkReader;
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        productSearchIndex = new ProductSearchIndex(productBulkReader, new ProductProperties());
+    }
+
+    @Test
+    public void testPostings_RoundTripWithUpdates() {
+        long[] ids = LongStream.rangeClosed(1, 1000).map(id -> id * 300).toArray();
+        ProductSearchIndex.Postings postings = ProductSearchIndex.Postings.of(ids);
+
+        assertArrayEquals(ids, postings.decode());
+        assertTrue(postings.encodedBytes() < ids.length * 3);
+
+        postings = postings.without(600).with(7).with(600);
+        assertEquals(1001, postings.size());
+        assertEquals(7, postings.decode()[0]);
+        assertNull(ProductSearchIndex.Postings.of(new long[]{5}).without(5));
+    }
+
+    @Test
+    public void testOnProductSaved_QueuedDuringBuildAndAppliedAfter() {
+        when(productBulkReader.streamAll()).thenAnswer(invocation -> {
+            productSearchIndex.onProductSaved(new ProductDTO(1L, "Blue Widget", 100L, 1L));
+            return Stream.of(new ProductDTO(1L, "Red Widget", 100L, 0L));
+        });
+
+        assertTrue(productSearchIndex.build());
+
+        assertEquals(0, search("red").total());
+        assertEquals(List.of(1L), ids(search("blue widget").hits()));
+    }
+
+    @Test
+    public void testBuild_FailureDropsQueueAndNextBuildSucceeds() {
+        when(productBulkReader.streamAll()).thenAnswer(invocation -> {
+            productSearchIndex.onProductSaved(new ProductDTO(1L, "Blue Widget", 100L, 1L));
+            throw new IllegalStateException("database down");
+        });
+
+        assertFalse(productSearchIndex.build());
+        assertFalse(productSearchIndex.isReady());
+        // not queued while no build is running
+        productSearchIndex.onProductSaved(new ProductDTO(2L, "Green Widget", 100L, 0L));
+
+        doReturn(Stream.of(new ProductDTO(1L, "Red Widget", 100L, 0L))).when(productBulkReader).streamAll();
+        assertTrue(productSearchIndex.build());
+
+        assertTrue(productSearchIndex.isReady());
+        assertEquals(List.of(1L), ids(search("widget").hits()));
+        assertEquals(0, search("blue").total());
+    }
+
+    @Test
+    public void testOnProductSaved_OlderVersionIgnored() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.empty());
+        productSearchIndex.build();
+
+        productSearchIndex.onProductSaved(new ProductDTO(1L, "Steel Chair", 100L, 2L));
+        productSearchIndex.onProductSaved(new ProductDTO(1L, "Wooden Chair", 100L, 1L));
+
+        assertEquals(1, search("steel").total());
+        assertEquals(0, search("wooden").total());
+    }
+
+    @Test
+    public void testBuild_SpansSeveralBlocks() {
+        int rows = ProductSearchIndex.BUILD_BLOCK * 2 + 1;
+        when(productBulkReader.streamAll()).thenReturn(LongStream.rangeClosed(1, rows)
+                .mapToObj(id -> new ProductDTO(id, id % 2 == 0 ? "Even Widget" : "Odd Widget", 100L, 0L)));
+
+        assertTrue(productSearchIndex.build());
+
+        assertEquals(rows, search("widget").total());
+        assertEquals(rows / 2, search("even").total());
+        // the intersection walks both lists in order, so it only finds every match if blocks kept them ascending
+        assertEquals(rows / 2 + 1, search("odd widget").total());
+    }
+
+    @Test
+    public void testTokenize_SplitsOnNonAlphanumerics() {
+        assertArrayEquals(new String[]{"widget", "3000", "pro"}, ProductSearchIndex.tokenize(" Widget 3000-PRO "));
+    }
+
+    private ProductSearchIndex.Matches search(String query) {
+        return productSearchIndex.search(query, Double.POSITIVE_INFINITY, 0, 10);
+    }
+
+    private static List<Long> ids(List<ProductSearchHit> hits) {
+        return hits.stream().map(ProductSearchHit::getId).toList();
+    }
+}
@@ -2,17 +2,36 @@ package com.sb.spring_boot_pit_testing_demo.service.impl;
 
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
 import com.sb.spring_boot_pit_testing_demo.exception.InvalidValueException;
 import com.sb.spring_boot_pit_testing_demo.exception.NotFoundException;
+import com.sb.spring_boot_pit_testing_demo.exception.ServiceUnavailableException;
+import com.sb.spring_boot_pit_testing_demo.exception.VersionConflictException;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
 import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
 
 import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ExportFormat;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductBatchItemResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductBatchResult;
 import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductLookupResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductPage;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSearchResult;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSuggestion;
+import com.sb.spring_boot_pit_testing_demo.service.dto.SerializedCatalog;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,6 +40,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
 @ExtendWith(MockitoExtension.class)
 public class ProductServiceImplTest extends Assertions {
@@ -28,12 +49,42 @@ public class ProductServiceImplTest extends Assertions {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ProductBulkReader productBulkReader;
+
+    @Mock
+    private ProductWriteCoalescer productWriteCoalescer;
+
+    @Mock
+    private ScheduledExecutorService suggestExecutor;
+
+    private ProductProperties productProperties;
+
+    private CatalogSnapshot catalogSnapshot;
+
+    private ProductSuggestIndex productSuggestIndex;
+
+    private ProductSearchIndex productSearchIndex;
+
     private ProductServiceImpl productService;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        productService = new ProductServiceImpl(productRepository);
+        productProperties = new ProductProperties();
+        ProductCache productCache = new ProductCache(productProperties);
+        ProductIdFilter productIdFilter = new ProductIdFilter(productRepository, productBulkReader, productProperties);
+        catalogSnapshot = new CatalogSnapshot(productRepository, productBulkReader, productProperties, Runnable::run);
+        OffHeapProductStore offHeapProductStore = new OffHeapProductStore(productRepository, productBulkReader, productProperties);
+        CatalogSnapshotFile catalogSnapshotFile = new CatalogSnapshotFile(productBulkReader, catalogSnapshot, productProperties);
+        productSuggestIndex = new ProductSuggestIndex(productBulkReader, productProperties, suggestExecutor);
+        productSearchIndex = new ProductSearchIndex(productBulkReader, productProperties);
+        ProductPriceStatistics productPriceStatistics = new ProductPriceStatistics(productBulkReader, productProperties);
+        productService = new ProductServiceImpl(productRepository, productBulkReader, new ObjectMapper(), productProperties,
+                productWriteCoalescer, productCache, productIdFilter, catalogSnapshot, offHeapProductStore, catalogSnapshotFile,
+                productSuggestIndex, productSearchIndex, productPriceStatistics, List.of(productCache, productIdFilter,
+                catalogSnapshot, offHeapProductStore, catalogSnapshotFile, productSuggestIndex, productSearchIndex,
+                productPriceStatistics));
     }
 
     @Test
@@ -43,39 +94,64 @@ public class ProductServiceImplTest extends Assertions {
 
     @Test
     public void testGetProductById_ProductNotFound() {
-        when(productRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(productRepository.findDtoById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> productService.getProductById(1L));
     }
 
     @Test
     public void testGetProductById_Success() {
-        Product product = new Product();
-        product.setId(1L);
-        when(productRepository.findById(anyLong())).thenReturn(Optional.of(product));
+        when(productRepository.findDtoById(anyLong())).thenReturn(Optional.of(new ProductDTO(1L, "Test Product", 100L, 0L)));
 
         ProductDTO result = productService.getProductById(2L);
 
         assertEquals(1L, result.getId());
     }
 
+    @Test
+    public void testGetProductById_Cached() {
+        when(productRepository.findDtoById(1L)).thenReturn(Optional.of(new ProductDTO(1L, "Test Product", 100L, 0L)));
+
+        productService.getProductById(1L);
+        ProductDTO result = productService.getProductById(1L);
+
+        assertEquals("Test Product", result.getName());
+        verify(productRepository, times(1)).findDtoById(1L);
+        assertEquals(1, productService.getCacheStats().getHitCount());
+    }
+
+    @Test
+    public void testGetProductById_NotFoundIsNotCached() {
+        when(productRepository.findDtoById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> productService.getProductById(1L));
+        assertThrows(NotFoundException.class, () -> productService.getProductById(1L));
+
+        verify(productRepository, times(2)).findDtoById(1L);
+    }
+
+    @Test
+    public void testSaveProduct_InvalidatesCache() {
+        when(productRepository.findDtoById(1L)).thenReturn(Optional.of(new ProductDTO(1L, "Old", 100L, 0L)));
+        productService.getProductById(1L);
+
+        productService.saveProduct(new ProductDTO(1L, "New", 100L, 0L));
+        productService.getProductById(1L);
+
+        verify(productRepository, times(2)).findDtoById(1L);
+    }
+
     @Test
     public void testGetAllProducts_NoProductsFound() {
-        when(productRepository.findAll()).thenReturn(new ArrayList<>());
+        when(productRepository.findAllDtos()).thenReturn(new ArrayList<>());
 
         assertThrows(NotFoundException.class, () -> productService.getAllProducts());
     }
 
     @Test
     public void testGetAllProducts_Success() {
-        List<Product> products = new ArrayList<>();
-        Product product1 = new Product();
-        product1.setId(1L);
-        products.add(product1);
-        Product product2 = new Product();
-        product2.setId(2L);
-        products.add(product2);
-        when(productRepository.findAll()).thenReturn(products);
+        when(productRepository.findAllDtos()).thenReturn(List.of(
+                new ProductDTO(1L, "First", 100L, 0L), new ProductDTO(2L, "Second", 200L, 0L)));
 
         List<ProductDTO> result = productService.getAllProducts();
 
@@ -84,6 +160,190 @@ public class ProductServiceImplTest extends Assertions {
         assertEquals(2L, result.get(1).getId());
     }
 
+    @Test
+    public void testGetProductsByIds_InvalidIds() {
+        assertThrows(InvalidValueException.class, () -> productService.getProductsByIds(List.of()));
+        assertThrows(InvalidValueException.class, () -> productService.getProductsByIds(List.of(1L, 0L)));
+    }
+
+    @Test
+    public void testGetProductsByIds_DeduplicatesAndReportsMissing() {
+        when(productRepository.findDtosByIdIn(List.of(2L, 3L))).thenReturn(List.of(new ProductDTO(2L, "Second", 200L, 0L)));
+
+        ProductLookupResult result = productService.getProductsByIds(List.of(2L, 3L, 2L));
+
+        assertEquals(1, result.getProducts().size());
+        assertEquals(2L, result.getProducts().get(0).getId());
+        assertEquals(List.of(3L), result.getMissingIds());
+        verify(productRepository, times(1)).findDtosByIdIn(anyCollection());
+    }
+
+    @Test
+    public void testGetAllProducts_FromSnapshot() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(new ProductDTO(1L, "First", 100L, 0L)));
+        catalogSnapshot.start();
+
+        productService.saveProduct(new ProductDTO(2L, "Second", 100L, 0L));
+        List<ProductDTO> result = productService.getAllProducts();
+
+        assertEquals(List.of(1L, 2L), result.stream().map(ProductDTO::getId).toList());
+        verify(productRepository, never()).findAllDtos();
+    }
+
+    @Test
+    public void testGetSerializedCatalog_ReusedUntilCatalogChanges() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(new ProductDTO(1L, "First", 100L, 0L)));
+        catalogSnapshot.start();
+
+        SerializedCatalog first = productService.getSerializedCatalog();
+        SerializedCatalog second = productService.getSerializedCatalog();
+        productService.saveProduct(new ProductDTO(2L, "Second", 100L, 0L));
+        SerializedCatalog third = productService.getSerializedCatalog();
+
+        assertSame(first, second);
+        assertEquals("[{\"id\":1,\"name\":\"First\",\"price\":1.00,\"version\":0}]", new String(first.getJson(), StandardCharsets.UTF_8));
+        assertNotEquals(first.getTag(), third.getTag());
+        assertTrue(third.getJson().length > first.getJson().length);
+    }
+
+    @Test
+    public void testGetSerializedCatalog_BeforeSnapshot() {
+        when(productRepository.findAllDtos()).thenReturn(List.of(new ProductDTO(1L, "First", 100L, 0L)));
+
+        SerializedCatalog result = productService.getSerializedCatalog();
+
+        assertNull(result.getTag());
+        assertTrue(result.getGzip().length > 0);
+    }
+
+    @Test
+    public void testGetProductPage_InvalidLimit() {
+        assertThrows(InvalidValueException.class, () -> productService.getProductPage(null, 0));
+        assertThrows(InvalidValueException.class, () -> productService.getProductPage(null, ProductServiceImpl.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    public void testGetProductPage_InvalidCursor() {
+        assertThrows(InvalidValueException.class, () -> productService.getProductPage("not a cursor", 10));
+    }
+
+    @Test
+    public void testGetProductPage_HasNextPage() {
+        List<ProductDTO> products = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            products.add(new ProductDTO(id, "Product " + id, 100L, 0L));
+        }
+        when(productRepository.findDtoPage(0L, Limit.of(3))).thenReturn(products);
+
+        ProductPage result = productService.getProductPage(null, 2);
+
+        assertEquals(2, result.getItems().size());
+        assertEquals(2L, result.getItems().get(1).getId());
+        assertEquals(ProductCursor.encode(2L), result.getNextCursor());
+    }
+
+    @Test
+    public void testGetProductPage_LastPage() {
+        when(productRepository.findDtoPage(4L, Limit.of(3))).thenReturn(List.of(new ProductDTO(5L, "Fifth", 100L, 0L)));
+
+        ProductPage result = productService.getProductPage(ProductCursor.encode(4L), 2);
+
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    public void testGetProductPageByPrice_InvalidRange() {
+        assertThrows(InvalidValueException.class,
+                () -> productService.getProductPageByPrice(new BigDecimal("5.00"), new BigDecimal("1.00"), null, 10));
+    }
+
+    @Test
+    public void testGetProductPageByPrice_KeysetOnPriceAndId() {
+        when(productRepository.findPriceRangePage(100L, 0L, 500L, Limit.of(3))).thenReturn(List.of(
+                new ProductDTO(9L, "Cheap", 100L, 0L), new ProductDTO(2L, "Middle", 250L, 0L), new ProductDTO(4L, "Dear", 500L, 0L)));
+        when(productRepository.findPriceRangePage(250L, 2L, 500L, Limit.of(3))).thenReturn(List.of(
+                new ProductDTO(4L, "Dear", 500L, 0L)));
+
+        ProductPage first = productService.getProductPageByPrice(new BigDecimal("1"), new BigDecimal("5.00"), null, 2);
+        ProductPage second = productService.getProductPageByPrice(new BigDecimal("1"), new BigDecimal("5.00"), first.getNextCursor(), 2);
+
+        assertEquals(List.of(9L, 2L), first.getItems().stream().map(ProductDTO::getId).toList());
+        assertEquals(ProductCursor.encode(250L, 2L), first.getNextCursor());
+        assertEquals(List.of(4L), second.getItems().stream().map(ProductDTO::getId).toList());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    public void testGetTopProductsByPrice_OrderedIndexBeforeSnapshot() {
+        when(productRepository.findMostExpensive(Limit.of(2))).thenReturn(List.of(
+                new ProductDTO(4L, "Dear", 900L, 0L), new ProductDTO(2L, "Middle", 500L, 0L)));
+
+        List<ProductDTO> result = productService.getTopProductsByPrice("expensive", 2);
+
+        assertEquals(List.of(4L, 2L), result.stream().map(ProductDTO::getId).toList());
+    }
+
+    @Test
+    public void testGetTopProductsByPrice_FromSnapshotPerVersion() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(
+                new ProductDTO(1L, "Middle", 500L, 0L), new ProductDTO(2L, "Cheap", 100L, 0L),
+                new ProductDTO(3L, "Also Cheap", 100L, 0L), new ProductDTO(4L, "Dear", 900L, 0L)));
+        catalogSnapshot.load();
+
+        assertEquals(List.of(2L, 3L), productService.getTopProductsByPrice("cheapest", 2).stream().map(ProductDTO::getId).toList());
+
+        catalogSnapshot.onProductSaved(new ProductDTO(5L, "Cheapest", 50L, 0L));
+
+        assertEquals(List.of(5L, 2L), productService.getTopProductsByPrice("cheapest", 2).stream().map(ProductDTO::getId).toList());
+        assertEquals(List.of(4L), productService.getTopProductsByPrice("EXPENSIVE", 1).stream().map(ProductDTO::getId).toList());
+        verify(productRepository, never()).findCheapest(any());
+    }
+
+    @Test
+    public void testGetTopProductsByPrice_InvalidOrder() {
+        assertThrows(InvalidValueException.class, () -> productService.getTopProductsByPrice("random", 5));
+    }
+
+    @Test
+    public void testSearchProducts_UnavailableWhileBuilding() {
+        assertThrows(ServiceUnavailableException.class, () -> productService.searchProducts("widget", null, 10));
+    }
+
+    @Test
+    public void testSearchProducts_PagesWithCursor() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(
+                new ProductDTO(1L, "Red Widget", 100L, 0L),
+                new ProductDTO(2L, "Blue Widget", 100L, 0L),
+                new ProductDTO(3L, "Red Widget Pro Max", 100L, 0L),
+                new ProductDTO(4L, "Red Lamp", 100L, 0L)));
+        productSearchIndex.build();
+
+        ProductSearchResult first = productService.searchProducts("red widget", null, 1);
+        ProductSearchResult second = productService.searchProducts("red widget", first.getNextCursor(), 1);
+
+        assertEquals(2, first.getTotal());
+        assertEquals(1L, first.getItems().get(0).getId());
+        assertEquals(3L, second.getItems().get(0).getId());
+        assertTrue(first.getItems().get(0).getScore() > second.getItems().get(0).getScore());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    public void testSuggestProducts_InvalidPrefix() {
+        assertThrows(InvalidValueException.class, () -> productService.suggestProducts(" ", 10));
+    }
+
+    @Test
+    public void testSuggestProducts_DatabaseUntilIndexIsBuilt() {
+        when(productRepository.findByNameStartingWithIgnoreCaseOrderByNameAsc("wid", Limit.of(5)))
+                .thenReturn(List.of(new Product(3L, "Widget", 100L, 0L)));
+
+        List<ProductSuggestion> result = productService.suggestProducts(" wid", 5);
+
+        assertEquals(List.of(new ProductSuggestion(3L, "Widget", 0)), result);
+    }
+
     @Test
     public void testSaveProduct_InvalidId() {
         ProductDTO productDTO = new ProductDTO();
@@ -123,7 +383,7 @@ public class ProductServiceImplTest extends Assertions {
         ProductDTO productDTO = new ProductDTO();
         productDTO.setId(1L);
         productDTO.setName("Test Product");
-        productDTO.setPrice(BigDecimal.valueOf(-10));
+        productDTO.setPrice(-1000L);
 
         assertThrows(InvalidValueException.class, () -> productService.saveProduct(productDTO));
     }
@@ -133,10 +393,129 @@ public class ProductServiceImplTest extends Assertions {
         ProductDTO productDTO = new ProductDTO();
         productDTO.setId(1L);
         productDTO.setName("Test Product");
-        productDTO.setPrice(BigDecimal.ONE);
+        productDTO.setPrice(100L);
+
+        productService.saveProduct(productDTO);
+
+        verify(productRepository, times(1)).upsert(1L, "Test Product", 100L);
+        verify(productRepository, never()).saveAndFlush(any(Product.class));
+    }
+
+    @Test
+    public void testSaveProduct_GroupCommit() {
+        productProperties.getGroupCommit().setEnabled(true);
+        ProductDTO productDTO = new ProductDTO(1L, "Test Product", 100L, null);
+        doAnswer(invocation -> {
+            invocation.<Product>getArgument(0).setVersion(3L);
+            return null;
+        }).when(productWriteCoalescer).save(any(Product.class));
 
         productService.saveProduct(productDTO);
 
-        verify(productRepository, times(1)).saveAndFlush(any(Product.class));
+        verify(productWriteCoalescer, times(1)).save(any(Product.class));
+        verify(productRepository, never()).upsert(anyLong(), anyString(), anyLong());
+    }
+
+    @Test
+    public void testSaveProductIfMatch_Success() {
+        when(productRepository.updateIfVersion(1L, "Test Product", 100L, 4L)).thenReturn(1);
+
+        long version = productService.saveProductIfMatch(new ProductDTO(1L, "Test Product", 100L, null), 4L);
+
+        assertEquals(5L, version);
+    }
+
+    @Test
+    public void testSaveProductIfMatch_VersionMismatch() {
+        when(productRepository.updateIfVersion(1L, "Test Product", 100L, 4L)).thenReturn(0);
+        ProductDTO productDTO = new ProductDTO(1L, "Test Product", 100L, null);
+
+        assertThrows(VersionConflictException.class, () -> productService.saveProductIfMatch(productDTO, 4L));
+    }
+
+    @Test
+    public void testSaveProductIfMatch_InvalidProduct() {
+        ProductDTO productDTO = new ProductDTO(1L, "Test Product", 0L, null);
+
+        assertThrows(InvalidValueException.class, () -> productService.saveProductIfMatch(productDTO, 4L));
+        verify(productRepository, never()).updateIfVersion(anyLong(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testSaveProducts_ChunksAndReportsPerItem() {
+        productProperties.getBatch().setChunkSize(2);
+        List<ProductDTO> products = List.of(
+                new ProductDTO(1L, "First", 100L, 0L),
+                new ProductDTO(2L, "Bad-name", 100L, 0L),
+                new ProductDTO(3L, "Third", 100L, 0L),
+                new ProductDTO(4L, "Fourth", 100L, 0L));
+
+        ProductBatchResult result = productService.saveProducts(products.iterator());
+
+        assertEquals(3, result.getSaved());
+        assertEquals(1, result.getFailed());
+        assertFalse(result.getItems().get(1).isSaved());
+        assertEquals("invalid value provided for the field name", result.getItems().get(1).getError());
+        verify(productRepository, times(2)).upsertAll(anyList());
+    }
+
+    @Test
+    public void testSaveProducts_UnmappedItemIsReportedAndSkipped() {
+        Iterator<ProductDTO> products = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < 3;
+            }
+
+            @Override
+            public ProductDTO next() {
+                if(++next == 2){
+                    throw new InvalidValueException("products[1].price");
+                }
+                return new ProductDTO((long) next, "Product " + next, 100L, 0L);
+            }
+        };
+
+        ProductBatchResult result = productService.saveProducts(products);
+
+        assertEquals(2, result.getSaved());
+        assertEquals(1, result.getFailed());
+        assertEquals(List.of(0, 1, 2), result.getItems().stream().map(ProductBatchItemResult::getIndex).toList());
+        assertNull(result.getItems().get(1).getId());
+        assertEquals("invalid value provided for the field products[1].price", result.getItems().get(1).getError());
+        assertEquals(3L, result.getItems().get(2).getId());
+    }
+
+    @Test
+    public void testSaveProducts_ChunkFailure() {
+        doThrow(new DataIntegrityViolationException("duplicate")).when(productRepository).upsertAll(anyList());
+
+        ProductBatchResult result = productService.saveProducts(List.of(new ProductDTO(1L, "First", 100L, 0L)).iterator());
+
+        assertEquals(0, result.getSaved());
+        assertEquals("duplicate", result.getItems().get(0).getError());
+    }
+
+    @Test
+    public void testExportProducts_Csv() throws IOException {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(
+                new ProductDTO(1L, "Plain", 100L, 0L), new ProductDTO(2L, "Needs, quoting", 1000L, 0L)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        productService.exportProducts(ExportFormat.CSV, outputStream);
+
+        assertEquals("id,name,price\n1,Plain,1.00\n2,\"Needs, quoting\",10.00\n", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testExportProducts_Ndjson() throws IOException {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(new ProductDTO(1L, "Plain", 100L, 0L)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        productService.exportProducts(ExportFormat.NDJSON, outputStream);
+
+        assertEquals("{\"id\":1,\"name\":\"Plain\",\"price\":1.00,\"version\":0}", outputStream.toString(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,121 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductBulkReader;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductDTO;
+import com.sb.spring_boot_pit_testing_demo.service.dto.ProductSuggestion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductSuggestIndexTest extends Assertions {
+
+    @Mock
+    private ProductBulkReader productBulkReader;
+
+    @Mock
+    private ScheduledExecutorService executor;
+
+    private ProductSuggestIndex productSuggestIndex;
+
+    @BeforeEach
+    public void setUp() {
+        productSuggestIndex = new ProductSuggestIndex(productBulkReader, new ProductProperties(), executor);
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(
+                new ProductDTO(1L, "Widget", 100L, 0L),
+                new ProductDTO(2L, "Widget Pro", 100L, 0L),
+                new ProductDTO(3L, "Gadget", 100L, 0L),
+                new ProductDTO(4L, "widget mini", 100L, 0L)));
+        productSuggestIndex.load();
+    }
+
+    @Test
+    public void testSuggest_PrefixInNameOrderWithoutViews() {
+        assertEquals(List.of(1L, 4L, 2L), ids(productSuggestIndex.suggest("WIDGET", 10)));
+        assertEquals(List.of(3L), ids(productSuggestIndex.suggest("g", 10)));
+        assertTrue(productSuggestIndex.suggest("x", 10).isEmpty());
+    }
+
+    @Test
+    public void testSuggest_RankedByViewsAfterRerank() {
+        productSuggestIndex.recordView(2L);
+        productSuggestIndex.recordView(2L);
+        productSuggestIndex.recordView(4L);
+        assertEquals(List.of(1L, 4L), ids(productSuggestIndex.suggest("widget", 2)));
+
+        productSuggestIndex.rerank();
+
+        List<ProductSuggestion> suggestions = productSuggestIndex.suggest("widget", 2);
+        assertEquals(List.of(2L, 4L), ids(suggestions));
+        assertEquals(2, suggestions.get(0).getViews());
+    }
+
+    @Test
+    public void testOnProductSaved_RenameMovesEntry() {
+        productSuggestIndex.onProductSaved(new ProductDTO(1L, "Gizmo", 100L, 1L));
+        productSuggestIndex.onProductSaved(new ProductDTO(5L, "Widget Max", 100L, 0L));
+        verify(executor, times(1)).execute(any());
+
+        productSuggestIndex.rebuild();
+
+        assertEquals(List.of(3L, 1L), ids(productSuggestIndex.suggest("g", 10)));
+        assertEquals(List.of(5L, 4L, 2L), ids(productSuggestIndex.suggest("widget", 10)));
+    }
+
+    @Test
+    public void testSuggest_TrailingSpaceIsPartOfThePrefix() {
+        when(productBulkReader.streamAll()).thenReturn(Stream.of(
+                new ProductDTO(1L, "Redwood", 100L, 0L),
+                new ProductDTO(2L, "Red Chair", 100L, 0L)));
+        productSuggestIndex.load();
+
+        assertEquals(List.of(2L), ids(productSuggestIndex.suggest("  red ", 10)));
+        assertEquals(List.of(2L, 1L), ids(productSuggestIndex.suggest("red", 10)));
+    }
+
+    @Test
+    public void testRerank_SkippedWithoutNewViews() {
+        ProductSuggestIndex.Entries loaded = productSuggestIndex.current;
+
+        productSuggestIndex.rerank();
+        assertSame(loaded, productSuggestIndex.current);
+
+        productSuggestIndex.recordView(3L);
+        productSuggestIndex.rerank();
+        ProductSuggestIndex.Entries reranked = productSuggestIndex.current;
+        assertNotSame(loaded, reranked);
+
+        productSuggestIndex.rerank();
+        assertSame(reranked, productSuggestIndex.current);
+    }
+
+    @Test
+    public void testLoad_FailureDropsQueueAndSchedulesRetry() {
+        ProductSuggestIndex failing = new ProductSuggestIndex(productBulkReader, new ProductProperties(), executor);
+        when(productBulkReader.streamAll()).thenThrow(new IllegalStateException("database down"));
+        failing.onProductSaved(new ProductDTO(9L, "Widget Ultra", 100L, 0L));
+
+        failing.load();
+
+        assertFalse(failing.isReady());
+        verify(executor).schedule(any(Runnable.class), eq(1000L), eq(TimeUnit.MILLISECONDS));
+        // saves are not queued again until a load is running
+        failing.onProductSaved(new ProductDTO(9L, "Widget Ultra", 100L, 1L));
+        verify(executor, never()).execute(any());
+    }
+
+    private static List<Long> ids(List<ProductSuggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestion::getId).toList();
+    }
+}
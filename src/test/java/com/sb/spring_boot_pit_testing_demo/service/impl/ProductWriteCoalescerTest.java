@@ -0,0 +1,126 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.config.ProductProperties;
+import com.sb.spring_boot_pit_testing_demo.repository.ProductRepository;
+import com.sb.spring_boot_pit_testing_demo.repository.entity.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductWriteCoalescerTest extends Assertions {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Captor
+    private ArgumentCaptor<List<Product>> batches;
+
+    private ProductWriteCoalescer productWriteCoalescer;
+
+    @BeforeEach
+    public void setUp() {
+        ProductProperties productProperties = new ProductProperties();
+        productProperties.getGroupCommit().setEnabled(true);
+        productProperties.getGroupCommit().setWindow(Duration.ofMillis(50));
+        productWriteCoalescer = new ProductWriteCoalescer(productRepository, productProperties);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        productWriteCoalescer.shutdown();
+    }
+
+    @Test
+    public void testSave_Disabled() {
+        ProductWriteCoalescer disabled = new ProductWriteCoalescer(productRepository, new ProductProperties());
+
+        assertThrows(IllegalStateException.class, () -> disabled.save(new Product(1L, "First", 100L, 0L)));
+    }
+
+    @Test
+    public void testSave_CoalescesConcurrentWrites() throws Exception {
+        int writes = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(writes);
+        try {
+            CyclicBarrier start = new CyclicBarrier(writes);
+            List<Future<?>> saves = new ArrayList<>();
+            for (long id = 1; id <= writes; id++) {
+                Product product = new Product(id, "Product " + id, 100L, 0L);
+                saves.add(executor.submit(() -> {
+                    start.await();
+                    productWriteCoalescer.save(product);
+                    return null;
+                }));
+            }
+            for (Future<?> save : saves) {
+                save.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(productRepository, atLeastOnce()).upsertAll(batches.capture());
+        List<List<Product>> calls = batches.getAllValues();
+        assertTrue(calls.stream().anyMatch(batch -> batch.size() > 1), "no batch held more than one write: " + calls.size() + " calls");
+        assertEquals(LongStream.rangeClosed(1, writes).boxed().toList(),
+                calls.stream().flatMap(List::stream).map(Product::getId).sorted().toList());
+        verify(productRepository, never()).upsert(anyLong(), anyString(), anyLong());
+    }
+
+    @Test
+    public void testShutdown_FinishesInFlightBatchWithoutInterrupting() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        doAnswer(invocation -> {
+            writing.countDown();
+            Thread.sleep(100);
+            interrupted.set(Thread.currentThread().isInterrupted());
+            return null;
+        }).when(productRepository).upsertAll(anyList());
+        CompletableFuture<Void> save = CompletableFuture.runAsync(() -> productWriteCoalescer.save(new Product(1L, "First", 100L, 0L)));
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+        productWriteCoalescer.shutdown();
+
+        assertDoesNotThrow(() -> save.get(10, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+        assertThrows(IllegalStateException.class, () -> productWriteCoalescer.save(new Product(2L, "Second", 100L, 0L)));
+    }
+
+    @Test
+    public void testSave_FailedBatchOnlyFailsOffendingWrite() {
+        // the writes may or may not share a batch, so either stub can go unused
+        lenient().doThrow(new DataIntegrityViolationException("batch")).when(productRepository)
+                .upsertAll(argThat(products -> products.stream().anyMatch(product -> product.getId() == 2L)));
+        lenient().when(productRepository.upsert(eq(2L), anyString(), anyLong())).thenThrow(new DataIntegrityViolationException("row"));
+
+        CompletableFuture<Void> good = CompletableFuture.runAsync(() -> productWriteCoalescer.save(new Product(1L, "First", 100L, 0L)));
+        CompletableFuture<Void> bad = CompletableFuture.runAsync(() -> productWriteCoalescer.save(new Product(2L, "Second", 100L, 0L)));
+
+        assertDoesNotThrow(() -> good.join());
+        assertThrows(RuntimeException.class, () -> bad.join());
+    }
+}
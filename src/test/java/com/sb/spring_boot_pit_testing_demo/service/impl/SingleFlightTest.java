@@ -0,0 +1,81 @@
+package com.sb.spring_boot_pit_testing_demo.service.impl;
+
+import com.sb.spring_boot_pit_testing_demo.exception.NotFoundException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest extends Assertions {
+
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    public void testExecute_ConcurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "product";
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> {
+            loads.incrementAndGet();
+            return "duplicate";
+        }));
+        // give the second caller time to join the in-flight load before it completes
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("product", first.get(5, TimeUnit.SECONDS));
+        assertEquals("product", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testExecute_SharesFailureAndForgetsIt() {
+        assertThrows(NotFoundException.class, () -> singleFlight.execute(1L, () -> {
+            throw new NotFoundException("1");
+        }));
+
+        assertEquals("found", singleFlight.execute(1L, () -> "found"));
+    }
+
+    @Test
+    public void testExecute_ErrorReleasesWaiters() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> {
+            loading.countDown();
+            await(release);
+            throw new StackOverflowError();
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> "duplicate"));
+        Thread.sleep(100);
+        release.countDown();
+
+        ExecutionException firstFailure = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        ExecutionException secondFailure = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, firstFailure.getCause());
+        assertInstanceOf(StackOverflowError.class, secondFailure.getCause());
+        assertEquals("found", singleFlight.execute(1L, () -> "found"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}